@@ -0,0 +1,96 @@
+package benchmark;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//Generates synthetic carpark rate feeds of any size, in the format of the carpark-rates.csv from data.gov.sg.
+//Each synthetic row copies the category and rate descriptions of a random row of the shipped carpark-rates.csv, so the phrases (and how
+//often each one is used) are the real ones. Half of the rate descriptions get new dollar amounts, so that not every description is a repeat.
+//Usage: CarparkRateCorpusGenerator <number of carparks> <output file> [seed]
+public class CarparkRateCorpusGenerator {
+
+    private static final String[] HEADER = {"carpark", "category", "weekdays_rate_1", "weekdays_rate_2", "saturday_rate", "sunday_publicholiday_rate"};
+    private static final Pattern AMOUNT = Pattern.compile("\\$(\\d+(\\.\\d+)?)");
+
+    private final List<String[]> templateRows = new ArrayList<>();
+    private final Random random;
+
+    public CarparkRateCorpusGenerator(long seed) throws IOException {
+
+        random = new Random(seed);
+
+        try (Reader reader = new InputStreamReader(CarparkRateCorpusGenerator.class.getClassLoader().getResourceAsStream("carpark-rates.csv"), StandardCharsets.UTF_8)) {
+
+            for (CSVRecord record : CSVFormat.RFC4180.withFirstRecordAsHeader().parse(reader)) {
+
+                String[] templateRow = new String[HEADER.length];
+                for (int column = 0; column < HEADER.length; column++) {
+                    templateRow[column] = record.get(HEADER[column]);
+                }
+
+                templateRows.add(templateRow);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        if (args.length < 2) {
+            System.out.println("Usage: CarparkRateCorpusGenerator <number of carparks> <output file> [seed]");
+            return;
+        }
+
+        long seed = (args.length > 2) ? Long.parseLong(args[2]) : 1L;
+
+        new CarparkRateCorpusGenerator(seed).generate(Long.parseLong(args[0]), args[1]);
+    }
+
+    //Write the given number of synthetic carparks to the output file
+    public void generate(long carparks, String outputFileLocation) throws IOException {
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFileLocation), StandardCharsets.UTF_8));
+             CSVPrinter printer = new CSVPrinter(writer, CSVFormat.RFC4180.withHeader(HEADER))) {
+
+            for (long i = 1; i <= carparks; i++) {
+
+                String[] row = templateRows.get(random.nextInt(templateRows.size())).clone();
+                row[0] = "Synthetic Carpark " + i;
+
+                for (int column = 2; column < HEADER.length; column++) {
+                    if (random.nextBoolean()) row[column] = withNewAmounts(row[column]);
+                }
+
+                printer.printRecord((Object[]) row);
+            }
+        }
+    }
+
+    //Replace every dollar amount in the rate description with an amount between half and one and a half times of it
+    private String withNewAmounts(String rateDescription) {
+
+        Matcher amount = AMOUNT.matcher(rateDescription);
+        StringBuffer newRateDescription = new StringBuffer();
+
+        while (amount.find()) {
+
+            float newAmount = Float.parseFloat(amount.group(1)) * (0.5f + random.nextFloat());
+            String formattedAmount = (amount.group(2) != null) ? String.format(Locale.ROOT, "%.2f", newAmount) : Integer.toString(Math.round(newAmount));
+
+            amount.appendReplacement(newRateDescription, Matcher.quoteReplacement("$" + formattedAmount));
+        }
+
+        amount.appendTail(newRateDescription);
+
+        return newRateDescription.toString();
+    }
+}
@@ -0,0 +1,218 @@
+package benchmark;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//Benchmarks of the rate description parsing of DataCleaner, over inputs taken from the shipped carpark-rates.csv.
+//The descriptions are sorted by the rate form RateDescriptionTokenizer recognises them as (per entry, amount per time with a sub. condition,
+//time window and daily), with a benchmark of the tokenizer for each form. Each invocation handles the next input of its benchmark,
+//so the scores are per rate description (or per row for processAllRateDescriptions).
+//JMH benchmarks cannot be in the default package and cannot import from it, so the application classes are called through method handles
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DataCleanerBenchmark {
+
+    private static final MethodHandle NEW_DATA_CLEANER;
+    private static final MethodHandle NEW_TOKENIZER;
+    private static final MethodHandle TOKENIZE;
+    private static final MethodHandle GET_TYPE;
+    private static final MethodHandle GET_PRESENT_VALUES;
+    private static final MethodHandle PARSE_RATE;
+    private static final MethodHandle PARSE_INDIVIDUAL_RATE_DESCRIPTION;
+    private static final MethodHandle PROCESS_ALL_RATE_DESCRIPTIONS;
+
+    //Bit flags of ParsedRate
+    private static final int START_TIME;
+    private static final int SUBSEQUENT_RATE;
+
+    static {
+
+        try {
+
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> dataCleaner = Class.forName("DataCleaner");
+            Class<?> parsedRate = Class.forName("ParsedRate");
+            Class<?> tokenizer = Class.forName("RateDescriptionTokenizer");
+            Class<?> chargeType = Class.forName("ChargeType");
+
+            NEW_DATA_CLEANER = lookup.findConstructor(dataCleaner, MethodType.methodType(void.class, BlockingQueue.class))
+                    .asType(MethodType.methodType(Object.class, BlockingQueue.class));
+            NEW_TOKENIZER = lookup.findConstructor(tokenizer, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Object.class));
+            TOKENIZE = lookup.findVirtual(tokenizer, "tokenize", MethodType.methodType(boolean.class, String.class))
+                    .asType(MethodType.methodType(boolean.class, Object.class, String.class));
+            GET_TYPE = lookup.findVirtual(tokenizer, "getType", MethodType.methodType(chargeType))
+                    .asType(MethodType.methodType(Object.class, Object.class));
+            GET_PRESENT_VALUES = lookup.findVirtual(tokenizer, "getPresentValues", MethodType.methodType(int.class))
+                    .asType(MethodType.methodType(int.class, Object.class));
+            PARSE_RATE = lookup.findStatic(dataCleaner, "parseRate", MethodType.methodType(parsedRate, String.class))
+                    .asType(MethodType.methodType(Object.class, String.class));
+            PARSE_INDIVIDUAL_RATE_DESCRIPTION = lookup.findVirtual(dataCleaner, "parseIndividualRateDescription", MethodType.methodType(JSONObject.class, String.class))
+                    .asType(MethodType.methodType(JSONObject.class, Object.class, String.class));
+            PROCESS_ALL_RATE_DESCRIPTIONS = lookup.findVirtual(dataCleaner, "processAllRateDescriptions",
+                    MethodType.methodType(void.class, String.class, String.class, String.class, String.class, String.class, String.class))
+                    .asType(MethodType.methodType(void.class, Object.class, String.class, String.class, String.class, String.class, String.class, String.class));
+
+            START_TIME = parsedRate.getField("START_TIME").getInt(null);
+            SUBSEQUENT_RATE = parsedRate.getField("SUBSEQUENT_RATE").getInt(null);
+        }
+
+        catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Object dataCleaner;
+    private Object tokenizer;
+
+    //Inputs of each benchmark, cycled through one per invocation
+    private String[] rateDescriptions;
+    private String[] perEntryRates;
+    private String[] ratesWithSubCondition;
+    private String[] timeWindowRates;
+    private String[] dailyRates;
+    private String[][] rows;
+
+    private int rateDescriptionIndex, perEntryRateIndex, rateWithSubConditionIndex, timeWindowRateIndex, dailyRateIndex, rowIndex;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) throws Throwable {
+
+        //processAllRateDescriptions hands each carpark to this queue, which passes it to the blackhole instead of keeping it
+        BlockingQueue<Object> discardingQueue = new LinkedBlockingQueue<Object>() {
+            @Override
+            public void put(Object cleanedCarpark) {
+                blackhole.consume(cleanedCarpark);
+            }
+        };
+
+        dataCleaner = (Object) NEW_DATA_CLEANER.invokeExact(discardingQueue);
+        tokenizer = (Object) NEW_TOKENIZER.invokeExact();
+
+        List<String> rateDescriptionList = new ArrayList<>();
+        List<String> perEntryRateList = new ArrayList<>();
+        List<String> ratesWithSubConditionList = new ArrayList<>();
+        List<String> timeWindowRateList = new ArrayList<>();
+        List<String> dailyRateList = new ArrayList<>();
+        List<String[]> rowList = new ArrayList<>();
+
+        try (Reader reader = new InputStreamReader(DataCleanerBenchmark.class.getClassLoader().getResourceAsStream("carpark-rates.csv"), StandardCharsets.UTF_8)) {
+
+            for (CSVRecord record : CSVFormat.RFC4180.withFirstRecordAsHeader().parse(reader)) {
+
+                //The weekday rates are passed without their last full stop, as in DataCleaner.cleanCarparkRateRecord
+                rowList.add(new String[] {record.get("carpark"), record.get("category"), withoutLastFullStop(record.get("weekdays_rate_1")),
+                        withoutLastFullStop(record.get("weekdays_rate_2")), record.get("saturday_rate"), record.get("sunday_publicholiday_rate")});
+
+                for (int column = 2; column < 6; column++) {
+
+                    String rateDescription = record.get(column);
+                    rateDescriptionList.add(rateDescription);
+
+                    if (!(boolean) TOKENIZE.invokeExact(tokenizer, rateDescription)) {
+                        continue;
+                    }
+
+                    String type = ((Object) GET_TYPE.invokeExact(tokenizer)).toString();
+                    int presentValues = (int) GET_PRESENT_VALUES.invokeExact(tokenizer);
+
+                    if (type.equals("DAILY_PRICE_PER_UNIT_TIME")) {
+                        dailyRateList.add(rateDescription);
+                    }
+
+                    else if (type.equals("PRICE_PER_ENTRY")) {
+                        perEntryRateList.add(rateDescription);
+                    }
+
+                    else if ((presentValues & SUBSEQUENT_RATE) != 0) {
+                        ratesWithSubConditionList.add(rateDescription);
+                    }
+
+                    else if ((presentValues & START_TIME) != 0) {
+                        timeWindowRateList.add(rateDescription);
+                    }
+                }
+            }
+        }
+
+        rateDescriptions = rateDescriptionList.toArray(new String[0]);
+        perEntryRates = perEntryRateList.toArray(new String[0]);
+        ratesWithSubCondition = ratesWithSubConditionList.toArray(new String[0]);
+        timeWindowRates = timeWindowRateList.toArray(new String[0]);
+        dailyRates = dailyRateList.toArray(new String[0]);
+        rows = rowList.toArray(new String[0][]);
+    }
+
+    private static String withoutLastFullStop(String rateDescription) {
+        return rateDescription.endsWith(".") ? rateDescription.substring(0, rateDescription.length() - 1) : rateDescription;
+    }
+
+    //"$2 per entry", "Aft 10pm: $2 per entry"
+    @Benchmark
+    public boolean tokenizePerEntryRate() throws Throwable {
+        perEntryRateIndex = (perEntryRateIndex + 1) % perEntryRates.length;
+        return (boolean) TOKENIZE.invokeExact(tokenizer, perEntryRates[perEntryRateIndex]);
+    }
+
+    //"7am-10.30pm: $1.20 for 1st hr or part thereof; $0.60 for sub. ½ hr or part thereof"
+    @Benchmark
+    public boolean tokenizeRateWithSubCondition() throws Throwable {
+        rateWithSubConditionIndex = (rateWithSubConditionIndex + 1) % ratesWithSubCondition.length;
+        return (boolean) TOKENIZE.invokeExact(tokenizer, ratesWithSubCondition[rateWithSubConditionIndex]);
+    }
+
+    //"8am-10pm: $1.20 per hr"
+    @Benchmark
+    public boolean tokenizeTimeWindowRate() throws Throwable {
+        timeWindowRateIndex = (timeWindowRateIndex + 1) % timeWindowRates.length;
+        return (boolean) TOKENIZE.invokeExact(tokenizer, timeWindowRates[timeWindowRateIndex]);
+    }
+
+    //"Daily: $1.12 per hr"
+    @Benchmark
+    public boolean tokenizeDailyRate() throws Throwable {
+        dailyRateIndex = (dailyRateIndex + 1) % dailyRates.length;
+        return (boolean) TOKENIZE.invokeExact(tokenizer, dailyRates[dailyRateIndex]);
+    }
+
+    //Single pass tokenizer used by the cleaning, without the rate description cache
+    @Benchmark
+    public Object parseRate() throws Throwable {
+        rateDescriptionIndex = (rateDescriptionIndex + 1) % rateDescriptions.length;
+        return (Object) PARSE_RATE.invokeExact(rateDescriptions[rateDescriptionIndex]);
+    }
+
+    //Rate description through the cache (as configured by datacleaner.ratecachesize) to its JSONObject
+    @Benchmark
+    public JSONObject parseIndividualRateDescription() throws Throwable {
+        rateDescriptionIndex = (rateDescriptionIndex + 1) % rateDescriptions.length;
+        return (JSONObject) PARSE_INDIVIDUAL_RATE_DESCRIPTION.invokeExact(dataCleaner, rateDescriptions[rateDescriptionIndex]);
+    }
+
+    //A full CSV row, from its rate descriptions to the cleaned carpark
+    @Benchmark
+    public void processAllRateDescriptions() throws Throwable {
+        rowIndex = (rowIndex + 1) % rows.length;
+        String[] row = rows[rowIndex];
+        PROCESS_ALL_RATE_DESCRIPTIONS.invokeExact(dataCleaner, row[0], row[1], row[2], row[3], row[4], row[5]);
+    }
+}
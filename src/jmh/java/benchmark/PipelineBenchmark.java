@@ -0,0 +1,170 @@
+package benchmark;
+
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+
+//End to end benchmark of the ETL pipeline on a synthetic feed, against an in-memory RDF4J store instead of GraphDB.
+//Reports the rows/sec, triples/sec and peak heap of generating, cleaning and loading the feed, and the latency of each DataRetrieval query.
+//The settings are those of config.properties, except for the files, and can be overridden with key=value arguments.
+//Usage: PipelineBenchmark [number of carparks] [working directory] [key=value ...]
+//The application classes are in the default package, which cannot be imported here, so they are called through reflection
+public class PipelineBenchmark {
+
+    private static final PrintStream report = System.out;
+
+    //The pipeline prints a line for every carpark, which would be measured instead of the pipeline
+    private static final PrintStream discardedOutput = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    public static void main(String[] args) throws Exception {
+
+        long carparks = 100000;
+        File workDirectory = null;
+
+        Properties prop = new Properties();
+        prop.load(PipelineBenchmark.class.getClassLoader().getResourceAsStream("config.properties"));
+
+        for (String arg : args) {
+
+            if (arg.contains("=")) {
+                prop.setProperty(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+
+            else if (arg.matches("\\d+")) {
+                carparks = Long.parseLong(arg);
+            }
+
+            else {
+                workDirectory = new File(arg);
+            }
+        }
+
+        if (workDirectory == null) {
+            workDirectory = Files.createTempDirectory("carpark-pipeline").toFile();
+        }
+
+        File corpusFile = new File(workDirectory, "carpark-rates-" + carparks + ".csv");
+        File cleanedFile = new File(workDirectory, "carpark-rates-" + carparks + "-cleaned");
+
+        prop.setProperty("datacleaner.input", corpusFile.getPath());
+        prop.setProperty("cleanedoutput.filename", cleanedFile.getPath());
+        prop.setProperty("datacleaner.incremental", "false");
+        prop.setProperty("graphdb.checkpoint", "");
+
+        report.println("Pipeline benchmark of " + carparks + " carparks in " + workDirectory);
+        report.println(String.format("%-28s %12s %12s %14s %14s", "Stage", "Time (ms)", "Rows/sec", "Triples/sec", "Peak heap (MB)"));
+
+        //Generate the synthetic feed
+        startStage();
+        new CarparkRateCorpusGenerator(1L).generate(carparks, corpusFile.getPath());
+        endStage("Generate", carparks, 0);
+
+        //Clean the feed into the cleaned output file
+        startStage();
+        Class<?> dataCleanerClass = Class.forName("DataCleaner");
+        Object dataCleaner = dataCleanerClass.getConstructor(Properties.class, BlockingQueue.class).newInstance(prop, null);
+        dataCleanerClass.getMethod("processCarparkRateCSVFile").invoke(dataCleaner);
+        invokePackagePrivate(dataCleaner, "shutDown");
+        endStage("Clean", carparks, 0);
+
+        Repository repository = new SailRepository(new MemoryStore());
+        repository.init();
+
+        try {
+
+            //Transform the cleaned output and load it into the store
+            startStage();
+            Class<?> kbControllerClass = Class.forName("KBController");
+            Object kbController = kbControllerClass.getConstructor(Properties.class, Repository.class).newInstance(prop, repository);
+            kbControllerClass.getMethod("readCleanedFile").invoke(kbController);
+            invokePackagePrivate(kbController, "shutDown");
+
+            long triples;
+            try (RepositoryConnection connection = repository.getConnection()) {
+                triples = connection.size();
+            }
+
+            endStage("Load (" + triples + " triples)", carparks, triples);
+
+            //Run each query of DataRetrieval
+            Class<?> dataRetrievalClass = Class.forName("DataRetrieval");
+            Object dataRetrieval = dataRetrievalClass.getConstructor(Repository.class, Properties.class).newInstance(repository, prop);
+
+            startStage();
+            dataRetrievalClass.getMethod("getCategoryWithMostCarpark").invoke(dataRetrieval);
+            endStage("Query: most carparks", 0, 0);
+
+            String[][] maxAverageRateQueries = {{"Weekday", "cdit:hasWeekdayCarparkCharges"}, {"Saturday", "cdit:hasSaturdayCarparkCharges"}, {"Sunday", "cdit:hasSundayCarparkCharges"}};
+            for (String[] query : maxAverageRateQueries) {
+                startStage();
+                dataRetrievalClass.getMethod("getMaxAverageRateForEachRegion", String.class, String.class, String.class).invoke(dataRetrieval, query[0], query[1], "20");
+                endStage("Query: max rate " + query[0], 0, 0);
+            }
+        }
+
+        finally {
+            System.setOut(report);
+            repository.shutDown();
+        }
+    }
+
+    private static long stageStart;
+
+    private static void startStage() {
+
+        System.gc();
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+
+        System.setOut(discardedOutput);
+        stageStart = System.nanoTime();
+    }
+
+    private static void endStage(String stage, long rows, long triples) {
+
+        long elapsedNanos = System.nanoTime() - stageStart;
+        System.setOut(report);
+
+        long peakHeap = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peakHeap += pool.getPeakUsage().getUsed();
+        }
+
+        double seconds = elapsedNanos / 1e9;
+
+        report.println(String.format("%-28s %12d %12s %14s %14d", stage, elapsedNanos / 1000000,
+                (rows > 0) ? String.format("%.0f", rows / seconds) : "-",
+                (triples > 0) ? String.format("%.0f", triples / seconds) : "-",
+                peakHeap / (1024 * 1024)));
+    }
+
+    //shutDown is package-private, as it is only called by the application itself
+    private static void invokePackagePrivate(Object target, String methodName) throws ReflectiveOperationException {
+
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+}
@@ -0,0 +1,250 @@
+package benchmark;
+
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.LinkedHashModel;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+
+//Compares the formats KBController can upload its batches in (graphdb.uploadformat). The statements of a synthetic feed are split into batches,
+//and each batch is serialized and committed in its own transaction, as KBController does. Reports the bytes sent, the time spent serializing
+//and the commit latency of each format. The batches are committed to an in-memory store unless graphdb.backend is given, e.g. graphdb.backend=http
+//to measure the transfer to the graphDB at graphdb.url. They are committed into a scratch graph, which is cleared after each format.
+//Usage: UploadFormatBenchmark [number of carparks] [statements per batch] [key=value ...]
+//The application classes are in the default package, which cannot be imported here, so they are called through reflection
+public class UploadFormatBenchmark {
+
+    private static final String[] FORMATS = {"model", "binary", "ntriples", "turtle", "trig"};
+    private static final String BASE_URI = "http://cdit#";
+
+    private static final PrintStream report = System.out;
+
+    //The load prints a line for every carpark
+    private static final PrintStream discardedOutput = new PrintStream(new OutputStream() {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
+    });
+
+    public static void main(String[] args) throws Exception {
+
+        long carparks = 10000;
+        int batchStatements = 5000;
+        boolean carparksGiven = false;
+
+        Properties prop = new Properties();
+        prop.load(UploadFormatBenchmark.class.getClassLoader().getResourceAsStream("config.properties"));
+        prop.setProperty("graphdb.backend", "memory");
+
+        for (String arg : args) {
+
+            if (arg.contains("=")) {
+                prop.setProperty(arg.substring(0, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+
+            else if (!carparksGiven) {
+                carparks = Long.parseLong(arg);
+                carparksGiven = true;
+            }
+
+            else {
+                batchStatements = Integer.parseInt(arg);
+            }
+        }
+
+        List<Model> batches = createBatches(carparks, batchStatements, prop);
+
+        long statements = 0;
+        for (Model batch : batches) {
+            statements += batch.size();
+        }
+
+        Class<?> repositoryBackendClass = Class.forName("RepositoryBackend");
+        Repository repository = (Repository) repositoryBackendClass.getMethod("getRepository", Properties.class).invoke(null, prop);
+        String description = (String) repositoryBackendClass.getMethod("describe", Properties.class).invoke(null, prop);
+
+        ValueFactory vf = SimpleValueFactory.getInstance();
+        IRI scratchGraph = vf.createIRI(BASE_URI, "upload-benchmark");
+
+        report.println("Upload benchmark of " + statements + " statements in " + batches.size() + " batches, committed to " + description);
+        report.println(String.format("%-10s %14s %12s %16s %18s %14s", "Format", "Bytes", "Bytes/stmt", "Serialize (ms)", "Commit p50/p99 (ms)", "Stmts/sec"));
+
+        try (RepositoryConnection connection = repository.getConnection()) {
+
+            for (String formatName : FORMATS) {
+
+                RDFFormat format = formatFor(formatName);
+
+                //Once to warm up, then measured
+                uploadBatches(connection, batches, format, scratchGraph);
+                connection.clear(scratchGraph);
+
+                long[] measured = uploadBatches(connection, batches, format, scratchGraph);
+                connection.clear(scratchGraph);
+
+                long bytes = measured[0];
+                long serializeNanos = measured[1];
+                long totalNanos = measured[2];
+
+                long[] commitNanos = new long[batches.size()];
+                System.arraycopy(measured, 3, commitNanos, 0, commitNanos.length);
+                Arrays.sort(commitNanos);
+
+                report.println(String.format("%-10s %14s %12s %16d %18s %14.0f", formatName,
+                        (format != null) ? Long.toString(bytes) : "-",
+                        (format != null) ? String.format("%.1f", (double) bytes / statements) : "-",
+                        serializeNanos / 1000000,
+                        String.format("%.2f/%.2f", percentile(commitNanos, 0.5) / 1e6, percentile(commitNanos, 0.99) / 1e6),
+                        statements / (totalNanos / 1e9)));
+            }
+        }
+
+        finally {
+            repositoryBackendClass.getMethod("shutDownAll").invoke(null);
+        }
+    }
+
+    //Bytes sent, nanoseconds spent serializing, total nanoseconds, then the commit latency of every batch
+    private static long[] uploadBatches(RepositoryConnection connection, List<Model> batches, RDFFormat format, IRI graph) throws Exception {
+
+        long[] measured = new long[3 + batches.size()];
+        long start = System.nanoTime();
+
+        for (int i = 0; i < batches.size(); i++) {
+
+            Model batch = batches.get(i);
+            byte[] serializedBatch = null;
+
+            if (format != null) {
+                long serializeStart = System.nanoTime();
+                ByteArrayOutputStream out = new ByteArrayOutputStream(batch.size() * 64);
+                Rio.write(batch, out, format);
+                serializedBatch = out.toByteArray();
+                measured[1] += System.nanoTime() - serializeStart;
+                measured[0] += serializedBatch.length;
+            }
+
+            long commitStart = System.nanoTime();
+            connection.begin();
+
+            if (format != null) {
+                connection.add(new ByteArrayInputStream(serializedBatch), BASE_URI, format, graph);
+            }
+
+            else {
+                connection.add(batch, graph);
+            }
+
+            connection.commit();
+            measured[3 + i] = System.nanoTime() - commitStart;
+        }
+
+        measured[2] = System.nanoTime() - start;
+        return measured;
+    }
+
+    private static RDFFormat formatFor(String formatName) throws ReflectiveOperationException {
+        return (RDFFormat) Class.forName("UploadFormat").getMethod("parseFormat", String.class).invoke(null, formatName);
+    }
+
+    private static double percentile(long[] sortedValues, double fraction) {
+        return sortedValues[Math.min(sortedValues.length - 1, (int) Math.ceil(fraction * sortedValues.length) - 1)];
+    }
+
+    //Generate and clean a synthetic feed, load it into an in-memory store with KBController, and split its statements into batches
+    private static List<Model> createBatches(long carparks, int batchStatements, Properties prop) throws Exception {
+
+        File workDirectory = Files.createTempDirectory("carpark-upload").toFile();
+        File corpusFile = new File(workDirectory, "carpark-rates-" + carparks + ".csv");
+        File cleanedFile = new File(workDirectory, "carpark-rates-" + carparks + "-cleaned");
+
+        Properties loadProp = new Properties();
+        loadProp.putAll(prop);
+        loadProp.setProperty("datacleaner.input", corpusFile.getPath());
+        loadProp.setProperty("cleanedoutput.filename", cleanedFile.getPath());
+        loadProp.setProperty("datacleaner.incremental", "false");
+        loadProp.setProperty("graphdb.namedgraphs", "false");
+        loadProp.setProperty("graphdb.checkpoint", "");
+
+        System.setOut(discardedOutput);
+
+        Repository loadRepository = new SailRepository(new MemoryStore());
+        loadRepository.init();
+
+        List<Model> batches = new ArrayList<>();
+
+        try {
+
+            new CarparkRateCorpusGenerator(1L).generate(carparks, corpusFile.getPath());
+
+            Class<?> dataCleanerClass = Class.forName("DataCleaner");
+            Object dataCleaner = dataCleanerClass.getConstructor(Properties.class, BlockingQueue.class).newInstance(loadProp, null);
+            dataCleanerClass.getMethod("processCarparkRateCSVFile").invoke(dataCleaner);
+            invokePackagePrivate(dataCleaner, "shutDown");
+
+            Class<?> kbControllerClass = Class.forName("KBController");
+            Object kbController = kbControllerClass.getConstructor(Properties.class, Repository.class).newInstance(loadProp, loadRepository);
+            kbControllerClass.getMethod("readCleanedFile").invoke(kbController);
+            invokePackagePrivate(kbController, "shutDown");
+
+            try (RepositoryConnection connection = loadRepository.getConnection()) {
+
+                Model batch = new LinkedHashModel();
+
+                for (Statement statement : Iterations.asList(connection.getStatements(null, null, null, false))) {
+
+                    batch.add(statement.getSubject(), statement.getPredicate(), statement.getObject());
+
+                    if (batch.size() == batchStatements) {
+                        batches.add(batch);
+                        batch = new LinkedHashModel();
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    batches.add(batch);
+                }
+            }
+        }
+
+        finally {
+            System.setOut(report);
+            loadRepository.shutDown();
+        }
+
+        return batches;
+    }
+
+    //shutDown is package-private, as it is only called by the application itself
+    private static void invokePackagePrivate(Object target, String methodName) throws ReflectiveOperationException {
+
+        Method method = target.getClass().getDeclaredMethod(methodName);
+        method.setAccessible(true);
+        method.invoke(target);
+    }
+}
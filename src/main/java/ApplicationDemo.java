@@ -1,14 +1,98 @@
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicReference;
+
 public class ApplicationDemo {
 
     public static void main(String[] args) throws Exception {
 
-        //Executes the data cleaning pipe
-        DataCleaner.main(null);
+        Properties prop = new Properties();
+        prop.load(ApplicationDemo.class.getClassLoader().getResourceAsStream("config.properties"));
+
+        try {
+
+            if (Boolean.parseBoolean(prop.getProperty("pipeline.streaming", "false"))) {
+
+                //Clean, transform and load the data at the same time, without the cleaned file
+                runStreamingPipeline(Integer.parseInt(prop.getProperty("pipeline.queuesize", "1000")));
+            }
+
+            else {
+
+                //Executes the data cleaning pipe
+                DataCleaner.main(null);
+
+                //Transform and load the data into the KB
+                KBController kbController = new KBController();
+
+                try {
+                    kbController.readCleanedFile();
+                }
+
+                finally {
+                    kbController.shutDown();
+                }
+            }
+
+            //Retrieve the data for the two given queries
+            DataRetrieval dataRetrieval = new DataRetrieval();
+
+            try {
+                dataRetrieval.runQueries();
+            }
+
+            finally {
+                dataRetrieval.shutDown();
+            }
+        }
+
+        finally {
+            //Only once KBController and DataRetrieval have closed their connections
+            RepositoryBackend.shutDownAll();
+        }
+    }
+
+    //Run the data cleaning on its own thread and hand each cleaned carpark to KBController through a bounded queue.
+    //The cleaning thread blocks when the queue is full, so it never runs further ahead of the database than the queue size.
+    //When the data cleaning fails, nothing is published and its exception is thrown once the cleaning thread has ended
+    public static void runStreamingPipeline(int queueSize) throws Exception {
+
+        BlockingQueue<CleanedCarpark> cleanedCarparkQueue = new ArrayBlockingQueue<>(queueSize);
+
+        DataCleaner dataCleaner = new DataCleaner(cleanedCarparkQueue);
+        KBController kbController = new KBController();
+
+        AtomicReference<Exception> cleanerFailure = new AtomicReference<>();
+
+        Thread cleanerThread = new Thread(() -> {
+            try {
+                dataCleaner.processCarparkRateCSVFile();
+            }
+
+            catch (Exception e) {
+                cleanerFailure.set(e);
+            }
+
+            finally {
+                dataCleaner.shutDown();
+            }
+        }, "data-cleaner");
+
+        cleanerThread.setDaemon(true); //Do not keep the application alive if the ingestion fails
+        cleanerThread.start();
+
+        try {
+            kbController.readCleanedCarparkQueue(cleanedCarparkQueue);
+            cleanerThread.join();
+        }
 
-        //Transform and load the data into the KB
-        KBController.main(null);
+        finally {
+            kbController.shutDown();
+        }
 
-        //Retrieve the data for the two given queries
-        DataRetrieval.main(null);
+        if (cleanerFailure.get() != null) {
+            throw cleanerFailure.get();
+        }
     }
 }
@@ -0,0 +1,138 @@
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.repository.RepositoryException;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+//Writes the batches of KBController to the database on a background thread, so that the next batch is built while the last one is sent.
+//At most maxInFlightBatches batches are waiting or being written at any time, and submit waits for the oldest one when that is reached.
+//The batches are written one at a time in the order they were submitted. A batch which could not be written is rethrown by the next
+//submit or drain, as a RepositoryException. A batch which was written but whose onWritten failed is rethrown as the exception of onWritten.
+//The batches submitted after either are not written, as they may rely on statements sent in it or on what onWritten records
+public class BatchFlusher implements Closeable {
+
+    private final Consumer<Model> batchWriter;
+    private final int maxInFlightBatches;
+    private final ExecutorService executor;
+    private final Deque<Future<?>> pendingBatches = new ArrayDeque<>();
+    private long submittedBatches = 0;
+    private long writtenBatches = 0;
+
+    //Set by the background thread once a batch could not be written
+    private volatile boolean batchFailed = false;
+
+    //Failure of the onWritten of a batch which was written
+    private static class OnWrittenException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        private OnWrittenException(RuntimeException cause) {
+            super(cause);
+        }
+    }
+
+    public BatchFlusher(Consumer<Model> batchWriter, int maxInFlightBatches) {
+        this(batchWriter, maxInFlightBatches, "batch-flusher");
+    }
+
+    public BatchFlusher(Consumer<Model> batchWriter, int maxInFlightBatches, String threadName) {
+
+        this.batchWriter = batchWriter;
+        this.maxInFlightBatches = maxInFlightBatches;
+
+        //Daemon thread, so that a run which fails while building a batch still exits
+        executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    //Hand the batch over to be written. The batch must not be changed afterwards
+    public void submit(Model batch) {
+        submit(batch, null);
+    }
+
+    //Hand the batch over to be written, and run onWritten on the background thread once it is written
+    public void submit(Model batch, Runnable onWritten) {
+
+        //Report failures as soon as they are known, instead of when the failed batch is the oldest one
+        while (!pendingBatches.isEmpty() && pendingBatches.peek().isDone()) {
+            waitForOldestBatch();
+        }
+
+        while (pendingBatches.size() >= maxInFlightBatches) {
+            waitForOldestBatch();
+        }
+
+        submittedBatches++;
+        pendingBatches.add(executor.submit(() -> {
+
+            if (batchFailed) {
+                throw new IllegalStateException("An earlier batch could not be written");
+            }
+
+            try {
+                batchWriter.accept(batch);
+            }
+
+            catch (RuntimeException e) {
+                batchFailed = true;
+                throw e;
+            }
+
+            try {
+                if (onWritten != null) onWritten.run();
+            }
+
+            catch (RuntimeException e) {
+                batchFailed = true;
+                throw new OnWrittenException(e);
+            }
+        }));
+    }
+
+    //Wait until every submitted batch is written
+    public void drain() {
+
+        while (!pendingBatches.isEmpty()) {
+            waitForOldestBatch();
+        }
+    }
+
+    private void waitForOldestBatch() {
+
+        Future<?> oldestBatch = pendingBatches.poll();
+        long batchNumber = ++writtenBatches;
+
+        try {
+            oldestBatch.get();
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RepositoryException("Interrupted while waiting for batch " + batchNumber + " to be written", e);
+        }
+
+        catch (ExecutionException e) {
+
+            if (e.getCause() instanceof OnWrittenException) {
+                throw (RuntimeException) e.getCause().getCause();
+            }
+
+            throw new RepositoryException("Batch " + batchNumber + " of " + submittedBatches + " could not be written to the database", e.getCause());
+        }
+    }
+
+    //Batches which are still waiting are dropped, so drain first to have them written
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,104 @@
+import org.eclipse.rdf4j.model.Model;
+
+import java.util.Properties;
+
+//Decides when a batch of KBController is full.
+//With graphdb.adaptivebatch off, a batch is full after graphdb.batchsize carparks. With it on, a batch is full once it holds the target number
+//of statements, and the target is tuned from the time taken to write each batch: it keeps moving in the same direction while the time per
+//statement improves, turns around when it gets worse, and is halved when a write is slower than graphdb.batchtimeoutms or fails.
+//The target always stays between graphdb.batchstatements.min and graphdb.batchstatements.max
+public class BatchSizer {
+
+    private static final double GROWTH = 1.5;
+    private static final double SHRINK = 0.75;
+
+    //Change in time per statement which is taken as noise rather than a better or worse batch size
+    private static final double TOLERANCE = 0.1;
+
+    private final int batchCarparks;
+    private final boolean adaptive;
+    private final int minStatements;
+    private final int maxStatements;
+    private final long timeoutNanos;
+
+    //Updated by the thread writing the batches, and read by the thread building them
+    private volatile int targetStatements;
+    private boolean growing = true;
+    private double lastNanosPerStatement = 0;
+
+    public BatchSizer(Properties prop) {
+
+        batchCarparks = Integer.parseInt(prop.get("graphdb.batchsize").toString());
+        adaptive = Boolean.parseBoolean(prop.getProperty("graphdb.adaptivebatch", "false"));
+        minStatements = Integer.parseInt(prop.getProperty("graphdb.batchstatements.min", "500"));
+        maxStatements = Integer.parseInt(prop.getProperty("graphdb.batchstatements.max", "50000"));
+        timeoutNanos = Long.parseLong(prop.getProperty("graphdb.batchtimeoutms", "30000")) * 1000000L;
+
+        if (minStatements < 1 || maxStatements < minStatements) {
+            throw new IllegalArgumentException("graphdb.batchstatements.min must be at least 1 and at most graphdb.batchstatements.max");
+        }
+
+        targetStatements = minStatements;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    //Check if the batch is full, given the number of carparks added to it before the last one
+    public boolean isFull(Model batchModel, int batchCounter) {
+        return isFull(batchModel.size(), batchCounter);
+    }
+
+    //Check if a batch of the given number of statements is full, given the number of carparks added to it before the last one
+    public boolean isFull(int batchStatements, int batchCounter) {
+
+        if (adaptive) {
+            return batchStatements >= targetStatements;
+        }
+
+        return batchCounter > batchCarparks;
+    }
+
+    //Tune the target from a batch which was written, or failed to be written, in the given time
+    public synchronized void batchWritten(int statements, long nanos, boolean failed) {
+
+        if (!adaptive) {
+            return;
+        }
+
+        if (failed || nanos > timeoutNanos) {
+            setTarget(targetStatements / 2);
+            growing = false;
+            lastNanosPerStatement = 0;
+            return;
+        }
+
+        //The last batch of a load is usually only partly filled, and says little about the target
+        if (statements < targetStatements / 2) {
+            return;
+        }
+
+        double nanosPerStatement = (double) nanos / statements;
+
+        if (lastNanosPerStatement > 0 && nanosPerStatement > lastNanosPerStatement * (1 + TOLERANCE)) {
+            growing = !growing;
+        }
+
+        else if (lastNanosPerStatement > 0 && nanosPerStatement > lastNanosPerStatement * (1 - TOLERANCE)) {
+            lastNanosPerStatement = nanosPerStatement;
+            return;
+        }
+
+        lastNanosPerStatement = nanosPerStatement;
+        setTarget((int) (growing ? targetStatements * GROWTH : targetStatements * SHRINK));
+    }
+
+    private void setTarget(int statements) {
+        targetStatements = Math.max(minStatements, Math.min(maxStatements, statements));
+    }
+
+    public int getTargetStatements() {
+        return targetStatements;
+    }
+}
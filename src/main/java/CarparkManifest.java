@@ -0,0 +1,116 @@
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+//Hash of the raw CSV rows of each carpark, used to find the carparks which were added, changed or removed since the last run.
+//A carpark can have several rows (one per location category), so its hash is the sum of the hashes of its rows.
+//The manifest of a run is first written as a pending file, and only replaces the manifest once its delta has been ingested
+public class CarparkManifest {
+
+    public static final String PENDING_SUFFIX = ".pending";
+
+    private final Map<String, Long> carparkHashes = new LinkedHashMap<>();
+    private final MessageDigest digest;
+
+    public CarparkManifest() {
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        }
+
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    //Load the manifest of the last ingested run. A missing manifest is empty, so every carpark is added
+    public static CarparkManifest load(String manifestLocation) throws IOException {
+
+        CarparkManifest manifest = new CarparkManifest();
+        Path manifestPath = Paths.get(manifestLocation);
+
+        if (!Files.exists(manifestPath)) {
+            return manifest;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8)) {
+
+            String curLine;
+
+            while ((curLine = reader.readLine()) != null) {
+                int separator = curLine.indexOf('\t');
+                manifest.carparkHashes.put(curLine.substring(separator + 1), Long.parseUnsignedLong(curLine.substring(0, separator), 16));
+            }
+        }
+
+        return manifest;
+    }
+
+    //Add the hash of a raw CSV row to the hash of its carpark
+    public void addRecord(CSVRecord record) {
+
+        for (String value : record) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0x1F); //Unit separator, so that moving text between columns changes the hash
+        }
+
+        byte[] hash = digest.digest();
+
+        long rowHash = 0;
+        for (int i = 0; i < 8; i++) {
+            rowHash = (rowHash << 8) | (hash[i] & 0xFF);
+        }
+
+        carparkHashes.merge(record.get("carpark"), rowHash, Long::sum);
+    }
+
+    public boolean contains(String carpark) {
+        return carparkHashes.containsKey(carpark);
+    }
+
+    //Check if the carpark has the same rows in both manifests
+    public boolean isUnchanged(String carpark, CarparkManifest previous) {
+        return previous.carparkHashes.containsKey(carpark) && previous.carparkHashes.get(carpark).equals(carparkHashes.get(carpark));
+    }
+
+    public Iterable<String> getCarparks() {
+        return carparkHashes.keySet();
+    }
+
+    public int size() {
+        return carparkHashes.size();
+    }
+
+    //Write the manifest next to the manifest location, to be committed by commitPending once its delta is ingested
+    public void writePending(String manifestLocation) throws IOException {
+
+        try (BufferedWriter writer = Files.newBufferedWriter(Paths.get(manifestLocation + PENDING_SUFFIX), StandardCharsets.UTF_8)) {
+
+            for (Map.Entry<String, Long> carparkHash : carparkHashes.entrySet()) {
+                writer.write(Long.toHexString(carparkHash.getValue()));
+                writer.write('\t');
+                writer.write(carparkHash.getKey());
+                writer.newLine();
+            }
+        }
+    }
+
+    //Replace the manifest with the pending one. Returns false if there is no pending manifest
+    public static boolean commitPending(String manifestLocation) throws IOException {
+
+        Path pendingPath = Paths.get(manifestLocation + PENDING_SUFFIX);
+
+        if (!Files.exists(pendingPath)) {
+            return false;
+        }
+
+        Files.move(pendingPath, Paths.get(manifestLocation), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+}
@@ -0,0 +1,34 @@
+//Types of carpark charges, with the key used for them in the cleaned output
+public enum ChargeType {
+
+    PRICE_PER_ENTRY("pricePerEntry", true),
+    PRICE_PER_UNIT_TIME("pricePerUnitTime", true),
+    DAILY_PRICE_PER_UNIT_TIME("dailyPricePerUnitTime", false); //Same rate throughout the day, so it has no timing
+
+    private final String key;
+    private final boolean timed;
+
+    ChargeType(String key, boolean timed) {
+        this.key = key;
+        this.timed = timed;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    //Check if the charge is written with its timing
+    public boolean isTimed() {
+        return timed;
+    }
+
+    //Charge type of the given key in the cleaned output
+    public static ChargeType fromKey(String key) {
+
+        for (ChargeType chargeType : values()) {
+            if (chargeType.key.equalsIgnoreCase(key)) return chargeType;
+        }
+
+        throw new IllegalArgumentException("Unknown charge type " + key);
+    }
+}
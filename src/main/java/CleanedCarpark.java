@@ -0,0 +1,57 @@
+import org.json.JSONObject;
+
+//A carpark after cleaning: its name, its category and the parsed rates of its six rate slots
+public class CleanedCarpark {
+
+    //Rate slots, in the order weekday 1, weekday 2, saturday 1, saturday 2, sunday 1 and sunday 2
+    public static final int RATE_SLOTS = 6;
+    public static final String[] RATE_SLOT_KEYS = {"weekdays_rate_1", "weekdays_rate_2", "saturday_rate_1", "saturday_rate_2", "sunday_publicholiday_rate_1", "sunday_publicholiday_rate_2"};
+
+    private final String name;
+    private final String category;
+    private final ParsedRate[] rates;
+
+    //A null entry in rates means the slot has no rate
+    public CleanedCarpark(String name, String category, ParsedRate[] rates) {
+        this.name = name;
+        this.category = category;
+        this.rates = rates;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public ParsedRate getRate(int slot) {
+        return rates[slot];
+    }
+
+    //Construct the JSONObject of the carpark, as written to the cleaned output file
+    public JSONObject toJSONObject() {
+
+        JSONObject[] rateJSONObjects = new JSONObject[RATE_SLOTS];
+        for (int slot = 0; slot < RATE_SLOTS; slot++) {
+            if (rates[slot] != null) rateJSONObjects[slot] = rates[slot].toJSONObject();
+        }
+
+        return toJSONObject(name, category, rateJSONObjects);
+    }
+
+    //Construct the JSONObject of a carpark given the JSONObjects of its rates
+    public static JSONObject toJSONObject(String name, String category, JSONObject[] rateJSONObjects) {
+
+        JSONObject carparkObject = new JSONObject();
+        carparkObject.put("name", name);
+        carparkObject.put("category", category);
+
+        for (int slot = 0; slot < RATE_SLOTS; slot++) {
+            if (rateJSONObjects[slot] != null) carparkObject.put(RATE_SLOT_KEYS[slot], rateJSONObjects[slot]);
+        }
+
+        return carparkObject;
+    }
+}
@@ -0,0 +1,162 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+//Reads the cleaned carparks written by CleanedCarparkBinaryWriter through a memory mapping of the file.
+//Large files are mapped a window at a time, moving the window along when a record does not fit in the rest of it
+public class CleanedCarparkBinaryReader implements Closeable {
+
+    private static final long MAX_MAPPING_SIZE = 1L << 28;
+
+    private final FileChannel channel;
+    private final long fileSize;
+    private MappedByteBuffer mapping;
+    private long mappingStart;
+
+    private final List<String> dictionary = new ArrayList<>();
+
+    private static final ChargeType[] CHARGE_TYPES = ChargeType.values();
+
+    public CleanedCarparkBinaryReader(String fileLocation) throws IOException {
+
+        channel = FileChannel.open(Paths.get(fileLocation), StandardOpenOption.READ);
+        fileSize = channel.size();
+        map(0, 0);
+
+        if (fileSize < CleanedCarparkBinaryWriter.FILE_HEADER_SIZE || mapping.getInt() != CleanedCarparkBinaryWriter.MAGIC) {
+            channel.close();
+            throw new IOException(fileLocation + " is not a cleaned carpark binary file");
+        }
+
+        short version = mapping.getShort();
+        if (version != CleanedCarparkBinaryWriter.VERSION) {
+            channel.close();
+            throw new IOException("Unsupported version " + version + " of " + fileLocation);
+        }
+    }
+
+    //Read the next carpark, or return null at the end of the file
+    public CleanedCarpark next() throws IOException {
+
+        while (makeAvailable(CleanedCarparkBinaryWriter.RECORD_HEADER_SIZE)) {
+
+            byte kind = mapping.get();
+            int length = mapping.getInt();
+
+            if (!makeAvailable(length)) {
+                throw new EOFException("Truncated record at " + (mappingStart + mapping.position()));
+            }
+
+            if (kind == CleanedCarparkBinaryWriter.CARPARK) {
+                return readCarpark();
+            }
+
+            readDictionaryRecord(kind, length);
+        }
+
+        return null;
+    }
+
+    //Move past the records before the given offset, e.g. the carparks already loaded by an interrupted load. The carparks are skipped
+    //without being read, but the dictionary records are still read, as the carparks after the offset refer to their entries
+    public void skipTo(long offset) throws IOException {
+
+        while (getPosition() < offset && makeAvailable(CleanedCarparkBinaryWriter.RECORD_HEADER_SIZE)) {
+
+            byte kind = mapping.get();
+            int length = mapping.getInt();
+
+            if (!makeAvailable(length)) {
+                throw new EOFException("Truncated record at " + (mappingStart + mapping.position()));
+            }
+
+            if (kind == CleanedCarparkBinaryWriter.CARPARK) {
+                mapping.position(mapping.position() + length);
+            }
+
+            else {
+                readDictionaryRecord(kind, length);
+            }
+        }
+    }
+
+    //Offset just past the last record read
+    public long getPosition() {
+        return mappingStart + mapping.position();
+    }
+
+    private void readDictionaryRecord(byte kind, int length) throws IOException {
+
+        if (kind == CleanedCarparkBinaryWriter.DICTIONARY_ENTRY) {
+            byte[] bytes = new byte[length];
+            mapping.get(bytes);
+            dictionary.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+
+        else if (kind == CleanedCarparkBinaryWriter.DICTIONARY_RESET) {
+            dictionary.clear();
+        }
+
+        else {
+            throw new IOException("Unknown record kind " + kind + " at " + (mappingStart + mapping.position() - CleanedCarparkBinaryWriter.RECORD_HEADER_SIZE));
+        }
+    }
+
+    private CleanedCarpark readCarpark() {
+
+        String name = dictionary.get(mapping.getInt());
+        String category = dictionary.get(mapping.getInt());
+        int slotMask = mapping.get();
+
+        ParsedRate[] rates = new ParsedRate[CleanedCarpark.RATE_SLOTS];
+        for (int slot = 0; slot < CleanedCarpark.RATE_SLOTS; slot++) {
+
+            if ((slotMask & (1 << slot)) == 0) {
+                continue;
+            }
+
+            ChargeType type = CHARGE_TYPES[mapping.get()];
+            int presentValues = mapping.get();
+            rates[slot] = new ParsedRate(type, presentValues, mapping.getFloat(), mapping.getFloat(), mapping.getFloat(), mapping.getFloat(), mapping.getFloat(), mapping.getFloat());
+        }
+
+        return new CleanedCarpark(name, category, rates);
+    }
+
+    //Make sure the next count bytes are mapped. Returns false at the end of the file
+    private boolean makeAvailable(int count) throws IOException {
+
+        if (mapping.remaining() >= count) {
+            return true;
+        }
+
+        long position = mappingStart + mapping.position();
+        if (position == fileSize) {
+            return false;
+        }
+
+        if (fileSize - position < count) {
+            throw new EOFException("Truncated record at " + position);
+        }
+
+        map(position, count);
+        return true;
+    }
+
+    private void map(long position, int minimumSize) throws IOException {
+        mappingStart = position;
+        mapping = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(fileSize - position, Math.max(MAX_MAPPING_SIZE, minimumSize)));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,111 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+//Writes the cleaned carparks in the binary format read by CleanedCarparkBinaryReader.
+//The file starts with MAGIC and VERSION, followed by records. Each record is a kind byte, the length of its body as an int, and the body:
+//  DICTIONARY_ENTRY: the UTF-8 bytes of a name or category. Entries are numbered from 0 in the order they are written
+//  DICTIONARY_RESET: no body. Entries are numbered from 0 again, so neither side has to keep every carpark name
+//  CARPARK: the name and category entry numbers, a byte with a bit set for each rate slot which has a rate, then for each of those
+//           slots the charge type, the ParsedRate bit flags of its values, and the start time, end time, base rate, base rate unit,
+//           subsequent rate and subsequent rate unit (0 when absent)
+public class CleanedCarparkBinaryWriter implements Closeable {
+
+    public static final int MAGIC = 0x43505242; //"CPRB"
+    public static final short VERSION = 2;
+
+    //Kinds of record
+    public static final byte DICTIONARY_ENTRY = 1;
+    public static final byte DICTIONARY_RESET = 2;
+    public static final byte CARPARK = 3;
+
+    public static final int FILE_HEADER_SIZE = 6;
+    public static final int RECORD_HEADER_SIZE = 5;
+    public static final int RATE_SIZE = 1 + 1 + 6 * 4;
+
+    //Number of names and categories kept before the dictionary is reset
+    private static final int MAX_DICTIONARY_SIZE = 65536;
+
+    private final DataOutputStream out;
+    private final Map<String, Integer> dictionary = new HashMap<>();
+
+    public CleanedCarparkBinaryWriter(String fileLocation) throws IOException {
+
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileLocation), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public void write(CleanedCarpark carpark) throws IOException {
+
+        //Both strings have to be in the dictionary at the same time, so reset it first when there may not be room for them
+        if (dictionary.size() + 2 > MAX_DICTIONARY_SIZE) {
+            dictionary.clear();
+            out.writeByte(DICTIONARY_RESET);
+            out.writeInt(0);
+        }
+
+        int nameId = dictionaryId(carpark.getName());
+        int categoryId = dictionaryId(carpark.getCategory());
+
+        int slotMask = 0;
+        int rateCount = 0;
+        for (int slot = 0; slot < CleanedCarpark.RATE_SLOTS; slot++) {
+            if (carpark.getRate(slot) != null) {
+                slotMask |= 1 << slot;
+                rateCount++;
+            }
+        }
+
+        out.writeByte(CARPARK);
+        out.writeInt(4 + 4 + 1 + rateCount * RATE_SIZE);
+        out.writeInt(nameId);
+        out.writeInt(categoryId);
+        out.writeByte(slotMask);
+
+        for (int slot = 0; slot < CleanedCarpark.RATE_SLOTS; slot++) {
+
+            ParsedRate rate = carpark.getRate(slot);
+            if (rate == null) {
+                continue;
+            }
+
+            out.writeByte(rate.getType().ordinal());
+            out.writeByte(rate.getPresentValues());
+            out.writeFloat(rate.getStartTime());
+            out.writeFloat(rate.getEndTime());
+            out.writeFloat(rate.getBaseRate());
+            out.writeFloat(rate.getBaseRateTimeUnitInMins());
+            out.writeFloat(rate.getSubsequentRate());
+            out.writeFloat(rate.getSubsequentRateTimeUnitInMins());
+        }
+    }
+
+    //Number of the string in the dictionary, writing it out first if it is not there yet
+    private int dictionaryId(String value) throws IOException {
+
+        Integer id = dictionary.get(value);
+        if (id != null) {
+            return id;
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(DICTIONARY_ENTRY);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+
+        id = dictionary.size();
+        dictionary.put(value, id);
+        return id;
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,138 @@
+import org.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+
+//Writes the cleaned carparks as JSON, one carpark per line, straight into the writer without building a JSONObject for each of them.
+//The lines have the same shape as CleanedCarpark.toJSONObject(), with the fields always in this order, so the same feed always gives the same file:
+//  name, category, then each rate slot which has a rate in the order of CleanedCarpark.RATE_SLOT_KEYS
+//  each rate: timing (startTime, endTime), then the charge type (baseRate, baseRateTimeUnitInMins, subsequentRate, subsequentRateTimeUnitInMins)
+public class CleanedCarparkJSONWriter implements Closeable {
+
+    private final Writer out;
+
+    public CleanedCarparkJSONWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void write(CleanedCarpark carpark) throws IOException {
+        write(carpark, null);
+    }
+
+    //Write the carpark with a "delta" field first, as in the delta file of incremental cleaning. No delta field is written when it is null
+    public void write(CleanedCarpark carpark, String delta) throws IOException {
+
+        out.write('{');
+
+        boolean first = true;
+        if (delta != null) {
+            writeName("delta", true);
+            JSONObject.quote(delta, out);
+            first = false;
+        }
+
+        if (carpark.getName() != null) {
+            writeName("name", first);
+            JSONObject.quote(carpark.getName(), out);
+            first = false;
+        }
+
+        if (carpark.getCategory() != null) {
+            writeName("category", first);
+            JSONObject.quote(carpark.getCategory(), out);
+            first = false;
+        }
+
+        for (int slot = 0; slot < CleanedCarpark.RATE_SLOTS; slot++) {
+
+            ParsedRate rate = carpark.getRate(slot);
+            if (rate == null) {
+                continue;
+            }
+
+            writeName(CleanedCarpark.RATE_SLOT_KEYS[slot], first);
+            writeRate(rate);
+            first = false;
+        }
+
+        out.write('}');
+        out.write(System.lineSeparator());
+    }
+
+    //Write the line telling KBController to remove the carpark, as in the delta file of incremental cleaning
+    public void writeRemoval(String name) throws IOException {
+
+        out.write("{\"delta\":\"remove\",\"name\":");
+        JSONObject.quote(name, out);
+        out.write('}');
+        out.write(System.lineSeparator());
+    }
+
+    private void writeRate(ParsedRate rate) throws IOException {
+
+        out.write('{');
+
+        if (rate.getType().isTimed()) {
+
+            out.write("\"timing\":{");
+            boolean first = writeValue(rate, ParsedRate.START_TIME, "startTime", rate.getStartTime(), true);
+            writeValue(rate, ParsedRate.END_TIME, "endTime", rate.getEndTime(), first);
+            out.write("},");
+        }
+
+        JSONObject.quote(rate.getType().getKey(), out);
+        out.write(":{");
+        boolean first = writeValue(rate, ParsedRate.BASE_RATE, "baseRate", rate.getBaseRate(), true);
+        first = writeValue(rate, ParsedRate.BASE_RATE_TIME_UNIT, "baseRateTimeUnitInMins", rate.getBaseRateTimeUnitInMins(), first);
+        first = writeValue(rate, ParsedRate.SUBSEQUENT_RATE, "subsequentRate", rate.getSubsequentRate(), first);
+        writeValue(rate, ParsedRate.SUBSEQUENT_RATE_TIME_UNIT, "subsequentRateTimeUnitInMins", rate.getSubsequentRateTimeUnitInMins(), first);
+        out.write("}}");
+    }
+
+    //Write the value if it is present in the rate, and return whether nothing has been written to the object yet
+    private boolean writeValue(ParsedRate rate, int flag, String name, float value, boolean first) throws IOException {
+
+        if (!rate.has(flag)) {
+            return first;
+        }
+
+        writeName(name, first);
+        writeNumber(value);
+        return false;
+    }
+
+    private void writeName(String name, boolean first) throws IOException {
+
+        if (!first) out.write(',');
+        out.write('"');
+        out.write(name);
+        out.write("\":");
+    }
+
+    //Numbers are written as JSONObject writes floats: 7.0 is written as 7, and 1.0E-4 is left as it is
+    private void writeNumber(float value) throws IOException {
+
+        String number = Float.toString(value);
+
+        if (number.indexOf('.') < 0 || number.indexOf('E') >= 0) {
+            out.write(number);
+            return;
+        }
+
+        int end = number.length();
+        while (number.charAt(end - 1) == '0') end--;
+        if (number.charAt(end - 1) == '.') end--;
+
+        out.write(number, 0, end);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
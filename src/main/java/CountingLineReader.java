@@ -0,0 +1,88 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+//Reads lines like BufferedReader.readLine, and keeps the byte offset of the end of the last line read, so that reading can be resumed
+//from there with InputStream.skip. Lines end with \n, \r or \r\n. The charset must encode \r and \n as single bytes, as UTF-8 and ASCII do
+public class CountingLineReader implements Closeable {
+
+    private final InputStream in;
+    private final Charset charset;
+
+    private final byte[] buffer = new byte[1 << 16];
+    private int position = 0;
+    private int limit = 0;
+
+    private byte[] line = new byte[256];
+    private long offset;
+
+    //Reader of the stream, which has already been skipped to the given offset
+    public CountingLineReader(InputStream in, Charset charset, long offset) {
+        this.in = in;
+        this.charset = charset;
+        this.offset = offset;
+    }
+
+    //Next line without its line ending, or null at the end of the stream
+    public String readLine() throws IOException {
+
+        int length = 0;
+
+        while (true) {
+
+            if (position == limit && !fillBuffer()) {
+                return (length == 0) ? null : decode(length);
+            }
+
+            byte b = buffer[position++];
+            offset++;
+
+            if (b == '\n' || b == '\r') {
+
+                //The \n of a \r\n is part of the line ending, also when it is only in the next buffer
+                if (b == '\r' && (position < limit || fillBuffer()) && buffer[position] == '\n') {
+                    position++;
+                    offset++;
+                }
+
+                return decode(length);
+            }
+
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+
+            line[length++] = b;
+        }
+    }
+
+    //Read the next bytes of the stream into the buffer, returning false at the end of the stream
+    private boolean fillBuffer() throws IOException {
+
+        limit = in.read(buffer);
+        position = 0;
+
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+
+        return true;
+    }
+
+    private String decode(int length) {
+        return new String(line, 0, length, charset);
+    }
+
+    //Number of bytes of the stream up to the end of the last line read
+    public long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -1,483 +1,391 @@
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVRecord;
-import org.apache.commons.lang3.StringUtils;
 import org.json.JSONObject;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class DataCleaner {
 
     private Reader fileReader;
+    private String inputFileLocation;
     private String cleanedJSONFileLocation;
     private BufferedWriter jsonWriter;
+    private CleanedCarparkJSONWriter carparkJSONWriter;
+    private CleanedCarparkBinaryWriter binaryWriter;
+    private BlockingQueue<CleanedCarpark> cleanedCarparkQueue;
+    private int parallelism = 1;
+    private RateDescriptionCache rateDescriptionCache;
+    private String manifestLocation;
     private static boolean shutdown = false;
 
-    //Default constructor
-    public DataCleaner() throws IOException {
+    //Number of records cleaned by each task in parallel mode
+    private static final int CHUNK_SIZE = 1000;
 
-        System.out.println("Starting data cleaning process.");
+    //The tokenizer keeps its buffers between calls, so each cleaning thread gets its own
+    private static final ThreadLocal<RateDescriptionTokenizer> rateTokenizers = ThreadLocal.withInitial(RateDescriptionTokenizer::new);
 
-        InputStream inputFileStream = DataCleaner.class.getClassLoader().getResourceAsStream("carpark-rates.csv");
-        fileReader = new InputStreamReader(inputFileStream);
+    //Put on the queue after the last cleaned carpark when streaming to KBController
+    public static final CleanedCarpark END_OF_CLEANED_CARPARKS = new CleanedCarpark(null, null, new ParsedRate[CleanedCarpark.RATE_SLOTS]);
 
-        Properties prop = new Properties();
-        prop.load(DataRetrieval.class.getClassLoader().getResourceAsStream("config.properties"));
+    //Put on the queue instead of END_OF_CLEANED_CARPARKS when the data cleaning failed, so that what was streamed so far is not published
+    public static final CleanedCarpark CLEANING_FAILED = new CleanedCarpark(null, null, new ParsedRate[CleanedCarpark.RATE_SLOTS]);
 
-        cleanedJSONFileLocation = prop.get("cleanedoutput.filename").toString();
-        jsonWriter = new BufferedWriter(new FileWriter(cleanedJSONFileLocation));
+    //Default constructor, which writes the cleaned carparks to the cleaned output file
+    public DataCleaner() throws IOException {
+        this(null);
     }
 
-    public static void main (String[] args) throws Exception{
-
-        DataCleaner application = new DataCleaner();
-        application.processCarparkRateCSVFile();
-        application.shutDown();
-        shutdown = true;
-
-        Runtime.getRuntime().addShutdownHook(new Thread() {
-            public void run() {
-                if (shutdown == false) {
-                    System.out.println("Executing shutdown hook...");
-                    application.shutDown();
-                }
-            }
-        });
+    //Constructor which hands the cleaned carparks to the given queue instead of the cleaned output file. The queue is ended with END_OF_CLEANED_CARPARKS,
+    //or with CLEANING_FAILED
+    public DataCleaner(BlockingQueue<CleanedCarpark> cleanedCarparkQueue) throws IOException {
+        this(loadConfig(), cleanedCarparkQueue);
     }
 
-    //Extract each field in the CSV file
-    public void processCarparkRateCSVFile() throws Exception {
-
-        Iterable<CSVRecord> records = CSVFormat.RFC4180.withFirstRecordAsHeader().parse(fileReader);
+    //Constructor which takes its settings from the given properties instead of config.properties
+    public DataCleaner(Properties prop, BlockingQueue<CleanedCarpark> cleanedCarparkQueue) throws IOException {
 
-        for (CSVRecord record : records) {
+        System.out.println("Starting data cleaning process.");
 
-            String carpark = record.get("carpark");
-            String category = record.get("category");
-            String weekdays_rate_1 = replaceLastPunctuation(record.get("weekdays_rate_1"), ".");
-            String weekdays_rate_2 = replaceLastPunctuation(record.get("weekdays_rate_2"), ".");
-            String saturday_rate = record.get("saturday_rate");
-            String sunday_publicholiday_rate = record.get("sunday_publicholiday_rate");
+        inputFileLocation = prop.getProperty("datacleaner.input", "");
+        fileReader = openCarparkRateCSVFile();
 
-            processAllRateDescriptions(carpark, category, weekdays_rate_1, weekdays_rate_2, saturday_rate, sunday_publicholiday_rate);
-        }
-    }
-
-    //Method which stores the logic to check if each rate description string should be processed or not
-    public void processAllRateDescriptions(String carpark, String category, String weekdaysRate1, String weekdaysRate2, String saturdayRate, String sundayPublicholidayRate) throws IOException {
+        cleanedJSONFileLocation = prop.get("cleanedoutput.filename").toString();
+        parallelism = Integer.parseInt(prop.getProperty("datacleaner.parallelism", "1"));
 
-        //If weekday carpark rate does not contain any monetary value, i.e. its just description, ignore it.
-        if (removeDescriptionWithNoValues(weekdaysRate1) == true) {
-            System.out.println("    Skipping " + carpark + " with weekday_rate_1_description " + weekdaysRate1);
-            persistJSONObjectToFile(carpark, category, new JSONObject[6]);
-            return;
+        int rateCacheSize = Integer.parseInt(prop.getProperty("datacleaner.ratecachesize", "10000"));
+        if (rateCacheSize > 0) {
+            rateDescriptionCache = new RateDescriptionCache(rateCacheSize);
         }
 
-        JSONObject weekdaysRate1Obj = parseIndividualRateDescription(weekdaysRate1);
-        JSONObject weekdaysRate2Obj = parseIndividualRateDescription(weekdaysRate2);
-
-        //If both objects are the same, discard one
-        if ((weekdaysRate1Obj != null && weekdaysRate2Obj != null) && weekdaysRate1Obj.toString().compareToIgnoreCase(weekdaysRate2Obj.toString()) == 0) {
-            weekdaysRate2Obj = null;
-        }
+        this.cleanedCarparkQueue = cleanedCarparkQueue;
 
-        JSONObject saturdayRate1Obj, saturdayRate2Obj, sundayPublicholidayRate1Obj, sundayPublicholidayRate2Obj;
+        boolean incremental = Boolean.parseBoolean(prop.getProperty("datacleaner.incremental", "false"));
 
-        //If saturday's rate is same as weekday, copy it
-        if (saturdayRate.toLowerCase().contains("same")) {
-            saturdayRate1Obj = weekdaysRate1Obj;
-            saturdayRate2Obj = weekdaysRate2Obj;
+        //A delta is only applied from the delta file, which also commits the manifest of the run
+        if (cleanedCarparkQueue != null && incremental) {
+            throw new IllegalArgumentException("datacleaner.incremental cannot be used with pipeline.streaming, set one of them to false");
         }
 
-        else {
-            saturdayRate1Obj = parseIndividualRateDescription(saturdayRate);
-            saturdayRate2Obj = null;
+        if (incremental) {
+            manifestLocation = prop.get("datacleaner.manifest").toString();
+            jsonWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(prop.get("cleanedoutput.deltafilename").toString()), StandardCharsets.UTF_8));
+            carparkJSONWriter = new CleanedCarparkJSONWriter(jsonWriter);
         }
 
-        //If sunday's rate is same as weekday, copy it
-        if (sundayPublicholidayRate.toLowerCase().contains("same") && sundayPublicholidayRate.toLowerCase().contains("wkday")) {
-            sundayPublicholidayRate1Obj = weekdaysRate1Obj;
-            sundayPublicholidayRate2Obj = weekdaysRate2Obj;
+        else if (cleanedCarparkQueue == null && prop.getProperty("cleanedoutput.format", "json").equalsIgnoreCase("binary")) {
+            binaryWriter = new CleanedCarparkBinaryWriter(cleanedJSONFileLocation);
         }
 
-        //If sunday's rate is same as saturday, copy it
-        else if (sundayPublicholidayRate.toLowerCase().contains("same") && sundayPublicholidayRate.toLowerCase().contains("saturday")) {
-            sundayPublicholidayRate1Obj = saturdayRate1Obj;
-            sundayPublicholidayRate2Obj = saturdayRate2Obj;
+        else if (cleanedCarparkQueue == null) {
+            jsonWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(cleanedJSONFileLocation), StandardCharsets.UTF_8));
+            carparkJSONWriter = new CleanedCarparkJSONWriter(jsonWriter);
         }
+    }
 
-        else {
-            sundayPublicholidayRate1Obj = parseIndividualRateDescription(sundayPublicholidayRate);
-            sundayPublicholidayRate2Obj = null;
-        }
+    private static Properties loadConfig() throws IOException {
 
-        JSONObject[] ratesJSONObjectArr = new JSONObject[6];
-        ratesJSONObjectArr[0] = weekdaysRate1Obj;
-        ratesJSONObjectArr[1] = weekdaysRate2Obj;
-        ratesJSONObjectArr[2] = saturdayRate1Obj;
-        ratesJSONObjectArr[3] = saturdayRate2Obj;
-        ratesJSONObjectArr[4] = sundayPublicholidayRate1Obj;
-        ratesJSONObjectArr[5] = sundayPublicholidayRate2Obj;
+        Properties prop = new Properties();
+        prop.load(DataRetrieval.class.getClassLoader().getResourceAsStream("config.properties"));
 
-        persistJSONObjectToFile(carpark, category, ratesJSONObjectArr);
+        return prop;
     }
 
+    //Open the raw CSV file, which is the carpark-rates.csv in the resources unless datacleaner.input is set
+    private Reader openCarparkRateCSVFile() throws IOException {
 
-    //Process the string representation of the parking rate
-    public JSONObject parseIndividualRateDescription(String inputRateString) {
-
-        if (inputRateString.length() < 2) {
-            return null;
+        if (inputFileLocation.isEmpty()) {
+            return new InputStreamReader(DataCleaner.class.getClassLoader().getResourceAsStream("carpark-rates.csv"), StandardCharsets.UTF_8);
         }
 
-        String[] inputRateStringTokenized = inputRateString.split(":");
-
-        if (inputRateStringTokenized.length > 1) {
-
-            //Process the Time constraint factor and its corresponding parking rate
-            String time = inputRateStringTokenized[0];
-            String charges = inputRateStringTokenized[1];
-
-            if (time.toLowerCase().trim().startsWith("daily")) { //Process rates that starts with "daily". If daily rate is present, assume that the price is fixed for the entire day.
-
-                charges = charges.replace("/", " per ").replace("for", " per ").replaceAll("  ", " ");
-
-                if (charges.contains("sub") == false) { //If it is a simple $X per X hr/min rate
-
-                    Float[] pricePerUnitTime = processRateInAmountPerTime(charges);
-
-                    if (pricePerUnitTime != null) {
-                        return constructCarparkChargeJSONObject(-2f, -2f, pricePerUnitTime[0], pricePerUnitTime[1], -2f, -2f, "dailyPricePerUnitTime");
-                    }
-                }
+        return new InputStreamReader(new FileInputStream(inputFileLocation), StandardCharsets.UTF_8);
+    }
 
-                else { //Compute sub charges
+    public static void main (String[] args) throws Exception{
 
-                    Float[] pricePerUnitTimeWithSub = processRatesInAmountPerTimeWithSubCondition(charges);
+        DataCleaner application = new DataCleaner();
+        application.processCarparkRateCSVFile();
+        application.shutDown();
+        shutdown = true;
 
-                    if (pricePerUnitTimeWithSub != null) {
-                        return constructCarparkChargeJSONObject(-2f, -2f, pricePerUnitTimeWithSub[0], pricePerUnitTimeWithSub[1], pricePerUnitTimeWithSub[2], pricePerUnitTimeWithSub[3], "dailyPricePerUnitTime");
-                    }
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                if (shutdown == false) {
+                    System.out.println("Executing shutdown hook...");
+                    application.shutDown();
                 }
             }
+        });
+    }
 
-            else if (time.toLowerCase().trim().startsWith("aft") && charges.toLowerCase().trim().contains("per entry")) { //Aft 5pm: $1 per entry
-
-                float timeAfter = Float.parseFloat(time.replace("After", "").replace("Aft", "").replace("am", "").replace("pm", ""));
+    //Extract each field in the CSV file
+    public void processCarparkRateCSVFile() throws Exception {
 
-                if (time.contains("pm")) {
-                    timeAfter += 12f; //Convert to 24 hour clock
-                }
+        boolean cleaned = false;
 
-                String[] chargesTokenized = charges.split(" ");
-                float perEntryRate = 0f;
+        try {
 
-                for (String curStr : chargesTokenized) {
-                    if (curStr.startsWith("$")) {
-                        perEntryRate = Float.parseFloat(curStr.replace("$", ""));
-                    }
-                }
+            //Inside the try, so that the end is signalled even when the header cannot be read
+            Iterable<CSVRecord> records = CSVFormat.RFC4180.withFirstRecordAsHeader().parse(fileReader);
 
-                return constructCarparkChargeJSONObject(timeAfter+0.01f, -2f, perEntryRate, -1f, -2f, -2f, "pricePerEntry");
-                //After 5pm = 5.01pm
+            if (manifestLocation != null) {
+                processCarparkRateCSVFileIncrementally(records);
+            }
 
+            else if (parallelism > 1) {
+                processCarparkRateCSVFileInParallel(records);
             }
 
-            //"Normal" case: 7am-7pm: $1.50 per hr
-            else if ((time.toLowerCase().contains("am") || time.toLowerCase().contains("pm")) && time.length() <=15) { //15 character because longest length is 12.00am-12.00pm
+            else {
+                for (CSVRecord record : records) {
+                    writeCleanedCarpark(cleanCarparkRateRecord(record));
+                }
+            }
 
-                Float[] startEndTime = processTimeInAmPmFormat(time);
+            cleaned = true;
+        }
 
-                if (startEndTime != null) { //Process the parking rate if the time is present
+        finally {
 
-                    if (charges.toLowerCase().contains("$") && StringUtils.countMatches(charges, "$") == 1 && charges.contains("sub") == false) { //If it is a simple $X per X hr/min rate
+            if (rateDescriptionCache != null) {
+                System.out.println("Rate description cache: " + rateDescriptionCache.getHitCount() + " hits, " + rateDescriptionCache.getMissCount() + " misses ("
+                        + Math.round(rateDescriptionCache.getHitRatio() * 100) + "% of the descriptions were repeats).");
+            }
 
-                        charges = charges.replace("/", " per ").replace("for", " per ").replaceAll("  ", " ");
+            if (cleanedCarparkQueue != null) {
+                cleanedCarparkQueue.put(cleaned ? END_OF_CLEANED_CARPARKS : CLEANING_FAILED); //Always signal the end, so that the consumer does not wait forever
+            }
+        }
+    }
 
-                        Float[] pricePerUnitTime = processRateInAmountPerTime(charges);
+    //Write only the carparks which were added, changed or removed since the last ingested run to the delta file.
+    //The rows are hashed on a first pass over the CSV file, and the carparks which are not in the manifest of the last run with the same hash
+    //are cleaned on a second pass. The delta file starts with a "remove" line for every changed or removed carpark, followed by an "add" line
+    //for every row of an added or changed carpark
+    public void processCarparkRateCSVFileIncrementally(Iterable<CSVRecord> records) throws Exception {
 
-                        if (pricePerUnitTime != null) {
+        CarparkManifest previousManifest = CarparkManifest.load(manifestLocation);
+        CarparkManifest currentManifest = new CarparkManifest();
 
-                            return constructCarparkChargeJSONObject(startEndTime[0], startEndTime[1], pricePerUnitTime[0], pricePerUnitTime[1], -2f, -2f, "pricePerUnitTime");
-                        }
-                    }
+        for (CSVRecord record : records) {
+            currentManifest.addRecord(record);
+        }
 
-                    else if (charges.contains("sub")) { //If it is a more complex rate with subsequent charges e.g. $1.40 per 1st hr; $0.80 per sub 30 mins
+        int added = 0, changed = 0, removed = 0;
 
-                        Float[] pricePerUnitTimeWithSub = processRatesInAmountPerTimeWithSubCondition(charges);
+        for (String carpark : previousManifest.getCarparks()) {
 
-                        if (pricePerUnitTimeWithSub != null) {
+            if (!currentManifest.contains(carpark)) {
+                removed++;
+            }
 
-                            return constructCarparkChargeJSONObject(startEndTime[0], startEndTime[1], pricePerUnitTimeWithSub[0], pricePerUnitTimeWithSub[1], pricePerUnitTimeWithSub[2], pricePerUnitTimeWithSub[3], "pricePerUnitTime");
-                        }
-                    }
-                }
+            else if (!currentManifest.isUnchanged(carpark, previousManifest)) {
+                changed++;
             }
-        }
 
-        else { //For items with possibly no timing parameters (Cos they dont have the ":" delimiter)
+            else {
+                continue;
+            }
 
-            if (!inputRateString.contains("am ") && !inputRateString.contains("pm ") && inputRateString.length() > 2) { //Check if its input string contain some time elements (e.g. AM/PM)
+            carparkJSONWriter.writeRemoval(carpark);
+        }
 
-                if (inputRateString.contains("per entry")) {
-                    String[] chargesTokenized = inputRateString.split(" ");
-                    float perEntryRate = 0f;
-                    for (String curStr : chargesTokenized) {
-                        if (curStr.startsWith("$")) {
-                            perEntryRate = Float.parseFloat(curStr.replace("$", ""));
-                        }
-                    }
+        for (String carpark : currentManifest.getCarparks()) {
+            if (!previousManifest.contains(carpark)) added++;
+        }
 
-                    return constructCarparkChargeJSONObject(0f, 23.59f, perEntryRate, -1f, -2f, -2f, "pricePerEntry");
-                }
-            }
+        if (added + changed > 0) {
 
-            else if (inputRateString.contains(" - ")) { //6.30am to 6.30pm - $2 per hour (Its delimited by - instead of :
-                inputRateStringTokenized = inputRateString.split(" - ");
-                if (inputRateStringTokenized[0].contains("am") && inputRateStringTokenized[0].contains("pm")) {
+            Reader secondPassReader = openCarparkRateCSVFile();
 
-                    Float[] startEndTime = processTimeInAmPmFormat(inputRateStringTokenized[0]);
-                    Float[] pricePerUnitTime = null;
+            try {
 
-                    if (inputRateStringTokenized[1].contains("sub")) {
-                        pricePerUnitTime = processRatesInAmountPerTimeWithSubCondition(inputRateStringTokenized[1]);
-                    }
+                for (CSVRecord record : CSVFormat.RFC4180.withFirstRecordAsHeader().parse(secondPassReader)) {
 
-                    if ((pricePerUnitTime != null) && (startEndTime != null) ) {
-                        return constructCarparkChargeJSONObject(startEndTime[0], startEndTime[1], pricePerUnitTime[0], pricePerUnitTime[1], pricePerUnitTime[2], pricePerUnitTime[3], "pricePerUnitTime");
+                    if (currentManifest.isUnchanged(record.get("carpark"), previousManifest)) {
+                        continue;
                     }
-                }
 
-                else if (inputRateStringTokenized[0].contains("After")) { //After 4pm - $4 flat
-                    Float timeAfter = Float.parseFloat(inputRateStringTokenized[0].replace("After", "").replace("Aft", "").replace("am", "").replace("pm", ""));
-                    Float perEntryRate = Float.parseFloat(inputRateStringTokenized[1].replace(" flat", "").replace("$", ""));
-                    return constructCarparkChargeJSONObject(timeAfter, -2f, perEntryRate, -1f, -2f, -2f, "pricePerEntry");
+                    carparkJSONWriter.write(cleanCarparkRateRecord(record), "add");
                 }
             }
 
-            else {
-                if (inputRateString.contains("sub")) {
-                    Float[] pricePerUnitTime = processRatesInAmountPerTimeWithSubCondition(inputRateString);
-                    if (pricePerUnitTime!= null) {
-                        return constructCarparkChargeJSONObject(0f, 23.59f, pricePerUnitTime[0], pricePerUnitTime[1], pricePerUnitTime[2], pricePerUnitTime[3], "pricePerUnitTime");
-                    }
-                }
+            finally {
+                secondPassReader.close();
             }
         }
 
-        return null;
-    }
-
-
-    //Construct the JSONObject to be output into a flat file given all the input attributes
-    public JSONObject constructCarparkChargeJSONObject(float startTime, float endTime, float baseRate, float baseRateTimeUnitInMins, float subsequentRate, float subsequentRateTimeUnitInMins, String type) {
-
-        JSONObject startEndTimeJsonObj = new JSONObject();
-        if (startTime != -2f) startEndTimeJsonObj.put("startTime", startTime);
-        if (endTime != -2f) startEndTimeJsonObj.put("endTime", endTime);
-
-        JSONObject pricePerUnitTimeJsonObj = new JSONObject();
-        if (baseRate != -2f) pricePerUnitTimeJsonObj.put("baseRate", baseRate);
-        if (baseRateTimeUnitInMins != -2f) pricePerUnitTimeJsonObj.put("baseRateTimeUnitInMins", baseRateTimeUnitInMins);
-        if (subsequentRate != -2f) pricePerUnitTimeJsonObj.put("subsequentRate", subsequentRate);
-        if (subsequentRate != -2f) pricePerUnitTimeJsonObj.put("subsequentRateTimeUnitInMins", subsequentRateTimeUnitInMins);
+        currentManifest.writePending(manifestLocation);
 
-        JSONObject returnJsonObject = new JSONObject();
-        if (type.compareToIgnoreCase("dailyPricePerUnitTime") != 0 ) returnJsonObject.put("timing", startEndTimeJsonObj); //dailyPricePerUnitTime has no
-        returnJsonObject.put(type, pricePerUnitTimeJsonObj);
+        System.out.println("Delta of " + currentManifest.size() + " carparks: " + added + " added, " + changed + " changed, " + removed + " removed.");
+    }
 
-        return returnJsonObject;
+    public RateDescriptionCache getRateDescriptionCache() {
+        return rateDescriptionCache;
     }
 
+    //Clean the records in chunks on a fork join pool. The chunks are written back in the order they were read,
+    //and at most 2 chunks per thread are held in memory at any time
+    public void processCarparkRateCSVFileInParallel(Iterable<CSVRecord> records) throws Exception {
 
-    //Process parking rate in the form of "$1.40 per 1st hr; $0.80 per sub 30 mins"
-    public Float[] processRatesInAmountPerTimeWithSubCondition(String inputRateString) {
+        System.out.println("Cleaning with " + parallelism + " threads.");
 
-        //Replace to standard units
-        inputRateString = standardizeRateData(inputRateString);
-        inputRateString = inputRateString.replace("sub.", "sub. ").replaceAll("  ", " ");
-        inputRateString = inputRateString.replaceAll("1st 3 hrs", "1st 180mins").replaceAll("1st 2 hrs", "1st 120mins").replaceAll("1st 1½ hrs", "1st 90mins");
-        inputRateString = inputRateString.replace("sub. hr", "sub. 60mins").replace("sub. min", "sub. 1mins");
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Deque<ForkJoinTask<List<CleanedCarpark>>> pendingChunks = new ArrayDeque<>();
 
-        String[] inputRateStringTokenized = inputRateString.split(" ");
+        try {
 
-        //Look for pattern of $XXX --> 1st hour --> $XXX --> "sub" --> X hr
-        int check = 0;
-        ArrayList<String> attributeList = new ArrayList<String>();
+            List<CSVRecord> chunk = new ArrayList<>(CHUNK_SIZE);
 
-        for (int i=0; i<inputRateStringTokenized.length; i++) {
+            for (CSVRecord record : records) {
 
-            if ((check == 0 || check == 2) && inputRateStringTokenized[i].trim().startsWith("$")) {
-                attributeList.add(inputRateStringTokenized[i]);
-                check++;
-            }
+                chunk.add(record);
 
-            else if (check == 1 && inputRateStringTokenized[i].trim().startsWith("1st")) { //Extract first ? hours
-                if (i < inputRateStringTokenized.length-1) {
-                    String firstNHours = inputRateStringTokenized[i+1].replace(";", "");
-                    attributeList.add(firstNHours);
-                    check++;
-                    i++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    pendingChunks.add(pool.submit(cleanCarparkRateRecords(chunk)));
+                    chunk = new ArrayList<>(CHUNK_SIZE);
                 }
-            }
-
-            else if (check == 3 && inputRateStringTokenized[i].trim().toLowerCase().startsWith("sub")) { //Extract subsequent ? minutes
-                String subsequentUnitOfMeasurement = inputRateStringTokenized[i+1];
 
-                if (subsequentUnitOfMeasurement.contains("mins")) { //Replace hours with 60 minutes
-                    subsequentUnitOfMeasurement = subsequentUnitOfMeasurement.replace("mins", "");
+                //Wait for the oldest chunk before reading further ahead
+                if (pendingChunks.size() > parallelism * 2) {
+                    writeCleanedCarparks(pendingChunks.poll().get());
                 }
-                attributeList.add(subsequentUnitOfMeasurement);
-                break;
             }
 
-            else if (check == 3 && inputRateStringTokenized[i].trim().toLowerCase().endsWith("mins")) { //If the word "sub" comes after
-                String subsequentUnitOfMeasurement = inputRateStringTokenized[i].replace("mins", "");
-                attributeList.add(subsequentUnitOfMeasurement);
-                break;
+            if (!chunk.isEmpty()) {
+                pendingChunks.add(pool.submit(cleanCarparkRateRecords(chunk)));
+            }
+
+            while (!pendingChunks.isEmpty()) {
+                writeCleanedCarparks(pendingChunks.poll().get());
             }
         }
 
-        return processSearchedPatternForAmountPerTimeWithSubCondition(attributeList);
+        finally {
+            pool.shutdownNow();
+        }
     }
 
-    //Process searched pattern
-    public Float[] processSearchedPatternForAmountPerTimeWithSubCondition(ArrayList<String> attributeList) {
-
-        //Post process the extracted items if there are 4 elements extracted
-        if (attributeList.size() == 4) {
-
-            //Process the base rate
-            Float baseRate = Float.parseFloat(attributeList.get(0).replace("$", "").trim());
-
-            //Process the base rate time unit
-            String baseRateTimeStr = replaceLastPunctuation(attributeList.get(1), ",");
-            Float baseRateTime = 0f;
-
-            if (baseRateTimeStr.contains("mins")) {
-                baseRateTime = Float.parseFloat(baseRateTimeStr.replace("mins", "").trim());
-            }
+    //Task which cleans a chunk of records, in the order of the chunk
+    private Callable<List<CleanedCarpark>> cleanCarparkRateRecords(List<CSVRecord> chunk) {
 
-            else if (baseRateTimeStr.compareToIgnoreCase("hr") == 0) { //If is per 1 hour, convert to 60 mins
-                baseRateTime = 60f;
-            }
-
-            else {
-                return null;
+        return () -> {
+            List<CleanedCarpark> carparks = new ArrayList<>(chunk.size());
+            for (CSVRecord record : chunk) {
+                carparks.add(cleanCarparkRateRecord(record));
             }
+            return carparks;
+        };
+    }
 
-            //Process the subsequent rate
-            String subsequentRateStr = attributeList.get(2).replace("$", "").replace("/min", "").trim();
-            Float subsequentRate = Float.parseFloat(subsequentRateStr);
+    //Clean a single record of the CSV file
+    public CleanedCarpark cleanCarparkRateRecord(CSVRecord record) {
 
+        String carpark = record.get("carpark");
+        String category = record.get("category");
+        String weekdays_rate_1 = replaceLastPunctuation(record.get("weekdays_rate_1"), ".");
+        String weekdays_rate_2 = replaceLastPunctuation(record.get("weekdays_rate_2"), ".");
+        String saturday_rate = record.get("saturday_rate");
+        String sunday_publicholiday_rate = record.get("sunday_publicholiday_rate");
 
-            //Process the subsequent base rate time unit
-            Float subsequentRateTime = 0f;
-            String subsequentBaseRateTimeStr = attributeList.get(3);
+        return new CleanedCarpark(carpark, category, parseAllRates(carpark, weekdays_rate_1, weekdays_rate_2, saturday_rate, sunday_publicholiday_rate));
+    }
 
-            if (subsequentBaseRateTimeStr.compareToIgnoreCase("hr") == 0) { //If is per 1 hour, convert to 60 mins
-                subsequentRateTime = 60f;
-            }
+    //Method which stores the logic to check if each rate description string should be processed or not
+    public void processAllRateDescriptions(String carpark, String category, String weekdaysRate1, String weekdaysRate2, String saturdayRate, String sundayPublicholidayRate) throws IOException {
+        writeCleanedCarpark(new CleanedCarpark(carpark, category, parseAllRates(carpark, weekdaysRate1, weekdaysRate2, saturdayRate, sundayPublicholidayRate)));
+    }
 
-            else {
-                subsequentRateTime = Float.parseFloat(attributeList.get(3).replaceAll("[^\\d.]", ""));
-            }
+    //Parse the rate descriptions of a carpark, in the order weekday 1, weekday 2, saturday 1, saturday 2, sunday 1 and sunday 2. Slots without a rate are null
+    public ParsedRate[] parseAllRates(String carpark, String weekdaysRate1, String weekdaysRate2, String saturdayRate, String sundayPublicholidayRate) {
 
-            return new Float[]{baseRate, baseRateTime, subsequentRate, subsequentRateTime};
+        //If weekday carpark rate does not contain any monetary value, i.e. its just description, ignore it.
+        if (removeDescriptionWithNoValues(weekdaysRate1) == true) {
+            System.out.println("    Skipping " + carpark + " with weekday_rate_1_description " + weekdaysRate1);
+            return new ParsedRate[CleanedCarpark.RATE_SLOTS];
         }
 
-        return null;
-    }
+        ParsedRate weekdaysRate1Obj = parseIndividualRate(weekdaysRate1);
+        ParsedRate weekdaysRate2Obj = parseIndividualRate(weekdaysRate2);
 
-    //Process parking rate in the form of "$1.50 per 30 mins"
-    public Float[] processRateInAmountPerTime(String inputRateString) {
+        //If both objects are the same, discard one
+        if ((weekdaysRate1Obj != null && weekdaysRate2Obj != null) && weekdaysRate1Obj.equals(weekdaysRate2Obj)) {
+            weekdaysRate2Obj = null;
+        }
 
-        //Replace to standard units
-        inputRateString = standardizeRateData(inputRateString);
+        ParsedRate saturdayRate1Obj, saturdayRate2Obj, sundayPublicholidayRate1Obj, sundayPublicholidayRate2Obj;
 
-        //Replace min to mins for standardization also
-        if (inputRateString.endsWith("min")) {
-            inputRateString = inputRateString.replace("min", "mins");
+        //If saturday's rate is same as weekday, copy it
+        if (saturdayRate.toLowerCase().contains("same")) {
+            saturdayRate1Obj = weekdaysRate1Obj;
+            saturdayRate2Obj = weekdaysRate2Obj;
         }
 
-        String[] inputRateStringTokenized = inputRateString.split(" per ");
-
-        float price= -1f;
-        float rateBaseAmount = -1f;
+        else {
+            saturdayRate1Obj = parseIndividualRate(saturdayRate);
+            saturdayRate2Obj = null;
+        }
 
-        if (inputRateStringTokenized.length > 1) {
-            if (inputRateStringTokenized[0].trim().startsWith("$")) {
-                price = Float.parseFloat(inputRateStringTokenized[0].replace("$", "").replace("\u00A0", "").trim());
-            }
+        //If sunday's rate is same as weekday, copy it
+        if (sundayPublicholidayRate.toLowerCase().contains("same") && sundayPublicholidayRate.toLowerCase().contains("wkday")) {
+            sundayPublicholidayRate1Obj = weekdaysRate1Obj;
+            sundayPublicholidayRate2Obj = weekdaysRate2Obj;
+        }
 
-            if (inputRateStringTokenized[1].trim().endsWith("mins")) {
-                rateBaseAmount = Float.parseFloat(inputRateStringTokenized[1].replace("mins", "").replace("\u00A0", "").trim());
-            }
+        //If sunday's rate is same as saturday, copy it
+        else if (sundayPublicholidayRate.toLowerCase().contains("same") && sundayPublicholidayRate.toLowerCase().contains("saturday")) {
+            sundayPublicholidayRate1Obj = saturdayRate1Obj;
+            sundayPublicholidayRate2Obj = saturdayRate2Obj;
+        }
 
-            if (price >= 0f && rateBaseAmount >= 0f) {
-                return new Float[]{price, rateBaseAmount};
-            }
+        else {
+            sundayPublicholidayRate1Obj = parseIndividualRate(sundayPublicholidayRate);
+            sundayPublicholidayRate2Obj = null;
         }
 
-        return null;
-    }
+        ParsedRate[] ratesArr = new ParsedRate[CleanedCarpark.RATE_SLOTS];
+        ratesArr[0] = weekdaysRate1Obj;
+        ratesArr[1] = weekdaysRate2Obj;
+        ratesArr[2] = saturdayRate1Obj;
+        ratesArr[3] = saturdayRate2Obj;
+        ratesArr[4] = sundayPublicholidayRate1Obj;
+        ratesArr[5] = sundayPublicholidayRate2Obj;
 
-    //Process time in the form of "12am-12pm"
-    public Float[] processTimeInAmPmFormat(String inputTimeString) {
+        return ratesArr;
+    }
 
-        inputTimeString = inputTimeString.replace("\u00A0", "").trim(); //Replace &nbsp and replace blank spaces
-        inputTimeString = inputTimeString.replaceAll(" to ", "-"); //Some description uses the word " to " in replacement of the " - "
-        String[] inputTimeStringTokenized = inputTimeString.split("-");
 
-        if (inputTimeStringTokenized.length > 1) {
+    //Process the string representation of the parking rate
+    public JSONObject parseIndividualRateDescription(String inputRateString) {
 
-            float startTime = 0f;
-            float endTime = 0f;
+        ParsedRate rate = parseIndividualRate(inputRateString);
 
-            if (inputTimeStringTokenized[0].contains("am")) {
-                startTime = Float.parseFloat(inputTimeStringTokenized[0].replace("am", "").replace("\u00A0", "").trim());
-            }
+        return (rate != null) ? rate.toJSONObject() : null;
+    }
 
-            else if (inputTimeStringTokenized[0].contains("pm")) {
-                startTime = Float.parseFloat(inputTimeStringTokenized[0].replace("pm", "").replace("\u00A0", "").trim());
-                startTime = startTime + 12.0f;
-            }
+    //Parse the rate description through the cache, returning null if it is not a rate
+    public ParsedRate parseIndividualRate(String inputRateString) {
 
-            if (inputTimeStringTokenized[1].contains("am")) {
-                endTime = Float.parseFloat(inputTimeStringTokenized[1].replace("am", "").replace("\u00A0", "").trim());
-            }
+        ParsedRate rate = (rateDescriptionCache != null) ? rateDescriptionCache.get(inputRateString, DataCleaner::parseRate) : parseRate(inputRateString);
 
-            else if (inputTimeStringTokenized[1].contains("pm")) {
-                endTime = Float.parseFloat(inputTimeStringTokenized[1].replace("pm", "").replace("\u00A0", "").trim());
-                endTime = endTime + 12.0f;
-            }
+        return rate.isRate() ? rate : null;
+    }
 
-            return new Float[]{startTime, endTime};
-        }
+    //Parse a rate description with the tokenizer of the current thread
+    public static ParsedRate parseRate(String inputRateString) {
 
-        return null;
-    }
+        RateDescriptionTokenizer rateTokenizer = rateTokenizers.get();
 
-    //To perform some generic cleaning and data standardization on the carpark rates that is shared across different functions
-    public String standardizeRateData (String inputRateString) {
-        inputRateString = inputRateString.replace("1½hrs", "90mins").replace("1½ hrs", "90mins");
-        inputRateString = inputRateString.replace("1½hr", "90mins");
-        inputRateString = inputRateString.replace("2½ hrs", "150mins").replace("2½hrs", "150mins");
-        inputRateString = inputRateString.replace("½ hour", "30mins");
-        inputRateString = inputRateString.replace("½ hr", "30mins");
-        inputRateString = inputRateString.replace("½ hr", "30mins");
-        inputRateString = inputRateString.replace("1/2 hr" , "30mins");
-        inputRateString = inputRateString.replace("2hrs", "120mins");
-        inputRateString = inputRateString.replace("2-hrs", "120mins");
-        inputRateString = inputRateString.replace("2 hrs", "120mins");
-        inputRateString = inputRateString.replace("2 hr", "120mins");
-        inputRateString = inputRateString.replace("3hrs", "180mins");
-        inputRateString = inputRateString.replace(" 1hr", " 60mins");
-        inputRateString = inputRateString.replace("per hr", "per 60mins");
-        inputRateString = inputRateString.replace("per min", "per 1mins");
-        inputRateString = inputRateString.replace("Free ", "$0 ");
-        return inputRateString;
+        return rateTokenizer.tokenize(inputRateString) ? ParsedRate.from(rateTokenizer) : ParsedRate.NO_RATE;
     }
 
     public String replaceLastPunctuation (String inputString, String punctuation) {
@@ -491,25 +399,36 @@ public class DataCleaner {
         return inputString;
     }
 
-    //Write the JSON Objects to a physical file
-    public boolean persistJSONObjectToFile(String carpark, String category, JSONObject[] inputJSONObjects) throws IOException {
+    //Write the carpark to the cleaned output file, streaming its fields straight into the file in JSON mode,
+    //or hand it to KBController when streaming. The queue is bounded, so this blocks while the ingestion is behind
+    private void writeCleanedCarpark(CleanedCarpark carpark) throws IOException {
+
+        if (binaryWriter != null) {
+            binaryWriter.write(carpark);
+            return;
+        }
+
+        if (cleanedCarparkQueue != null) {
+
+            try {
+                cleanedCarparkQueue.put(carpark);
+            }
 
-        //Write the objects back into the file
-        JSONObject carparkObject = new JSONObject();
-        carparkObject.put("name", carpark);
-        carparkObject.put("category", category);
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while handing over " + carpark.getName());
+            }
 
-        if (inputJSONObjects[0] != null) carparkObject.put("weekdays_rate_1", inputJSONObjects[0]);
-        if (inputJSONObjects[1] != null) carparkObject.put("weekdays_rate_2", inputJSONObjects[1]);
-        if (inputJSONObjects[2] != null) carparkObject.put("saturday_rate_1", inputJSONObjects[2]);
-        if (inputJSONObjects[3] != null) carparkObject.put("saturday_rate_2", inputJSONObjects[3]);
-        if (inputJSONObjects[4] != null) carparkObject.put("sunday_publicholiday_rate_1", inputJSONObjects[4]);
-        if (inputJSONObjects[5] != null) carparkObject.put("sunday_publicholiday_rate_2", inputJSONObjects[5]);
+            return;
+        }
 
-        jsonWriter.write(carparkObject.toString());
-        jsonWriter.newLine();
+        carparkJSONWriter.write(carpark);
+    }
 
-        return true;
+    private void writeCleanedCarparks(List<CleanedCarpark> carparks) throws IOException {
+        for (CleanedCarpark carpark : carparks) {
+            writeCleanedCarpark(carpark);
+        }
     }
 
     //Check if the carpark rate description contains any amount
@@ -522,10 +441,20 @@ public class DataCleaner {
         return false;
     }
 
-    private void shutDown() {
+    void shutDown() {
 
         try {
             fileReader.close();
+
+            if (binaryWriter != null) {
+                binaryWriter.close();
+            }
+
+            if (jsonWriter == null) {
+                System.out.println("Application terminated gracefully.");
+                return;
+            }
+
             jsonWriter.flush();
             jsonWriter.close();
 
@@ -1,16 +1,100 @@
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 import org.eclipse.rdf4j.query.BindingSet;
 import org.eclipse.rdf4j.query.TupleQuery;
-import org.eclipse.rdf4j.query.TupleQueryResult;
+import org.eclipse.rdf4j.query.QueryResults;
+import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
-import org.eclipse.rdf4j.repository.http.HTTPRepository;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
 import java.util.Properties;
 
 public class DataRetrieval {
 
-    private static HTTPRepository repositoryManager;
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String base = "http://cdit#";
+
+    private static final String MAX_AVERAGE_RATE_QUERY = "maxAverageRateForEachRegion";
+    private static final String CATEGORY_WITH_MOST_CARPARK_QUERY = "categoryWithMostCarpark";
+
+    //Carparks with the highest average rate of each category at a time of day. Parameters: ?rateRelationship, the charges relationship of the
+    //day type (e.g. cdit:hasSaturdayCarparkCharges), and ?curTime, the time of day in decimal hours. Both are projected out of the subqueries,
+    //the max being grouped by them, so that the values bound to the outer query are in scope where they are used
+    private static final String MAX_AVERAGE_RATE_QUERY_STRING =
+            "PREFIX cdit:<http://cdit#> " +
+
+            "SELECT DISTINCT ?carparkName1 ?maxRate ?locationCategoryName " +
+            "WHERE { " +
+                "{ " +
+                    //Subquery to "join" the name of the carpark back to the exsssstracted max value
+                    "SELECT (ABS(?baseRate1/?baseRateTimeUnitInMins1) AS ?avgRate) ?carparkName1 ?maxRate ?locationCategoryName ?rateRelationship ?curTime " +
+                    "WHERE { " +
+                        "?carparkIRI1 ?rateRelationship ?carparkChargeIRI1. " +
+                        "?carparkIRI1 cdit:name ?carparkName1. " +
+                        "?carparkIRI1 cdit:hasLocationCategory ?locationCategoryIRI. " +
+                        "?locationCategoryIRI cdit:name ?locationCategoryName. " +
+                        "?carparkChargeIRI1 cdit:baseRate ?baseRate1. " +
+                        "?carparkChargeIRI1 cdit:baseRateTimeUnitInMins ?baseRateTimeUnitInMins1. " +
+
+                        "{ " +
+                            //Subquery to extract the max for each category
+                            "SELECT (MAX(ABS(?baseRate/?baseRateTimeUnitInMins)) AS ?maxRate) ?locationCategoryIRI ?rateRelationship ?curTime " +
+                            "WHERE { " +
+                                "{ " +
+                                    //Looks for a pattern where only the start time satisfies the time constraint, if only the start time is present
+                                    "?carparkIRI a cdit:Carpark. " +
+                                    "?carparkIRI ?rateRelationship ?carparkChargeIRI. " +
+                                    "?carparkIRI cdit:hasLocationCategory ?locationCategoryIRI. " +
+                                    "?carparkChargeIRI cdit:startTime ?startTime. " +
+                                    "FILTER NOT EXISTS {?carparkChargeIRI cdit:endTime ?endTime.} " +
+                                    "FILTER (?startTime <= ?curTime) " +
+                                    "?carparkChargeIRI cdit:baseRate ?baseRate. " +
+                                    "?carparkChargeIRI cdit:baseRateTimeUnitInMins ?baseRateTimeUnitInMins. " +
+                                "} " +
+                                "UNION " +
+                                "{ "+
+                                    //#Looks for a pattern where BOTH the start & end time satisfies the time constraint, if only the start & end time is present
+                                    "?carparkIRI a cdit:Carpark. " + //For performance reasons. Selecting this will make the query fast. (Select than filter)
+                                    "?carparkIRI ?rateRelationship ?carparkChargeIRI. " +
+                                    "?carparkIRI cdit:hasLocationCategory ?locationCategoryIRI. " +
+                                    "?carparkChargeIRI cdit:startTime ?startTime. " +
+                                    "?carparkChargeIRI cdit:endTime ?endTime. " +
+                                    "FILTER (?endTime >= ?curTime && ?startTime <= ?curTime) " +
+                                    "?carparkChargeIRI cdit:baseRate ?baseRate. " +
+                                    "?carparkChargeIRI cdit:baseRateTimeUnitInMins ?baseRateTimeUnitInMins. " +
+                                "} " +
+                            "} " +
+                            "GROUP BY ?locationCategoryIRI ?rateRelationship ?curTime " +
+                        "} " +
+                    "} " +
+                "} " +
+                //Filter where the average rate is the max rate obtained from the subquery
+                "FILTER (?avgRate = ?maxRate) " +
+            "} " +
+            "ORDER BY (?locationCategoryName) ";
+
+    //Category with the most carparks
+    private static final String CATEGORY_WITH_MOST_CARPARK_QUERY_STRING =
+            "PREFIX cdit:<http://cdit#> " +
+            "SELECT ((COUNT(?carpark)) as ?count) ?name " +
+            "WHERE { " +
+                "?carpark cdit:hasLocationCategory ?locationCategory. " + //Forward relationship, which is stored even without the inverse ones
+                "?locationCategory cdit:name ?name. " +
+            "} " +
+            "GROUP BY ?name " +
+            "ORDER BY DESC (?count) " +
+            "LIMIT 1 ";
+
+    private static Repository repositoryManager;
     private static RepositoryConnection repositoryConnection;
+    private static PreparedQueries preparedQueries;
+    private static QueryResultCache resultCache;
+
+    //Query only the current graph, as KBController loads each run into a named graph. Otherwise the whole repository is queried
+    private static boolean namedGraphs;
 
     //Default constructor to initialize database
     public DataRetrieval() throws IOException {
@@ -18,89 +102,124 @@ public class DataRetrieval {
         Properties prop = new Properties();
         prop.load(DataRetrieval.class.getClassLoader().getResourceAsStream("config.properties"));
 
-        String databaseURL = prop.get("graphdb.url").toString();
+        //Initialize connection to the database chosen by graphdb.backend
+        repositoryManager = RepositoryBackend.getRepository(prop);
+        repositoryConnection = repositoryManager.getConnection();
+        preparedQueries = createPreparedQueries(repositoryConnection);
+        resultCache = createResultCache(prop);
+        namedGraphs = Boolean.parseBoolean(prop.getProperty("graphdb.namedgraphs", "false"));
+
+        System.out.println("Connected to database at " + RepositoryBackend.describe(prop));
+
+    }
+
+    //Constructor to query the whole of the given repository, e.g. an embedded store, without caching the results
+    public DataRetrieval(Repository repository) {
+        this(repository, new Properties());
+    }
+
+    //Constructor to query the given repository, caching the results and using named graphs as set in the given properties
+    public DataRetrieval(Repository repository, Properties prop) {
 
-        //Initialize connection to database
-        repositoryManager = new HTTPRepository(databaseURL);
+        repositoryManager = repository;
         repositoryConnection = repositoryManager.getConnection();
+        preparedQueries = createPreparedQueries(repositoryConnection);
+        resultCache = createResultCache(prop);
+        namedGraphs = Boolean.parseBoolean(prop.getProperty("graphdb.namedgraphs", "false"));
+    }
 
-        System.out.println("Connected to database at " + databaseURL);
+    private static PreparedQueries createPreparedQueries(RepositoryConnection connection) {
 
+        PreparedQueries queries = new PreparedQueries(connection);
+        queries.register(MAX_AVERAGE_RATE_QUERY, MAX_AVERAGE_RATE_QUERY_STRING);
+        queries.register(CATEGORY_WITH_MOST_CARPARK_QUERY, CATEGORY_WITH_MOST_CARPARK_QUERY_STRING);
+        return queries;
+    }
+
+    //Cache of the query results, or null when dataretrieval.cachesize is 0
+    private static QueryResultCache createResultCache(Properties prop) {
+
+        int cacheSize = Integer.parseInt(prop.getProperty("dataretrieval.cachesize", "0").trim());
+        if (cacheSize <= 0) {
+            return null;
+        }
+
+        return new QueryResultCache(cacheSize,
+                Long.parseLong(prop.getProperty("dataretrieval.cachettlms", "3600000").trim()),
+                Long.parseLong(prop.getProperty("dataretrieval.versioncheckms", "1000").trim()));
+    }
+
+    //Solutions of the query with its current bindings, over the fully loaded graph of the last run. Taken from the cache when it holds them
+    private static List<BindingSet> evaluate(String queryName, TupleQuery query) {
+
+        if (resultCache == null) {
+            setCurrentDataset(query);
+            return QueryResults.asList(query.evaluate());
+        }
+
+        resultCache.checkDatasetVersion(repositoryConnection);
+
+        String key = QueryResultCache.createKey(queryName, query.getBindings());
+        List<BindingSet> solutions = resultCache.get(key);
+
+        if (solutions == null) {
+            setCurrentDataset(query);
+            solutions = QueryResults.asList(query.evaluate());
+            resultCache.put(key, solutions);
+        }
+
+        return solutions;
+    }
+
+    //Restrict the query to the current graph, which is looked up in the repository only when named graphs are used
+    private static void setCurrentDataset(TupleQuery query) {
+        query.setDataset(namedGraphs ? LoadGraphs.getCurrentDataset(repositoryConnection) : null);
+    }
+
+    //IRI of a relationship given with the cdit: prefix (e.g. cdit:hasSaturdayCarparkCharges) or in full
+    private static IRI createRelationshipIRI(String relationshipIRI) {
+        return relationshipIRI.startsWith("cdit:") ? vf.createIRI(base, relationshipIRI.substring("cdit:".length())) : vf.createIRI(relationshipIRI);
     }
 
     public static void main (String[] args) throws Exception{
 
         DataRetrieval application = new DataRetrieval();
-        application.getCategoryWithMostCarpark();
-        application.getMaxAverageRateForEachRegion("Saturday", "cdit:hasSaturdayCarparkCharges", "20");
-        application.getMaxAverageRateForEachRegion("Weekday", "cdit:hasWeekdayCarparkCharges", "20");
-        application.getMaxAverageRateForEachRegion("Sunday", "cdit:hasSundayCarparkCharges", "20");
+
+        try {
+            application.runQueries();
+        }
+
+        finally {
+            application.shutDown();
+            RepositoryBackend.shutDownAll();
+        }
 
     }
 
-    public void getMaxAverageRateForEachRegion(String dayOfWeek, String rateRelationshipIRI, String curTimeInDecimal) {
+    //Retrieve the data for the two given queries
+    public void runQueries() {
 
-        String queryString =
-                "PREFIX cdit:<http://cdit#> " +
-
-                "SELECT DISTINCT ?carparkName1 ?maxRate ?locationCategoryName " +
-                "WHERE { " +
-                    "{ " +
-                        //Subquery to "join" the name of the carpark back to the exsssstracted max value
-                        "SELECT (ABS(?baseRate1/?baseRateTimeUnitInMins1) AS ?avgRate) ?carparkName1 ?maxRate ?locationCategoryName " +
-                        "WHERE { " +
-                            "?carparkIRI1 " + rateRelationshipIRI + "?carparkChargeIRI1. " +
-                            "?carparkIRI1 cdit:name ?carparkName1. " +
-                            "?carparkIRI1 cdit:hasLocationCategory ?locationCategoryIRI. " +
-                            "?locationCategoryIRI cdit:name ?locationCategoryName. " +
-                            "?carparkChargeIRI1 cdit:baseRate ?baseRate1. " +
-                            "?carparkChargeIRI1 cdit:baseRateTimeUnitInMins ?baseRateTimeUnitInMins1. " +
-
-                            "{ " +
-                                //Subquery to extract the max for each category
-                                "SELECT (MAX(ABS(?baseRate/?baseRateTimeUnitInMins)) AS ?maxRate) ?locationCategoryIRI  " +
-                                "WHERE { " +
-                                    "{ " +
-                                        //Looks for a pattern where only the start time satisfies the time constraint, if only the start time is present
-                                        "?carparkIRI a cdit:Carpark. " +
-                                        "?carparkIRI " + rateRelationshipIRI + " ?carparkChargeIRI. " +
-                                        "?carparkIRI cdit:hasLocationCategory ?locationCategoryIRI. " +
-                                        "?carparkChargeIRI cdit:startTime ?startTime. " +
-                                        "FILTER NOT EXISTS {?carparkChargeIRI cdit:endTime ?endTime.} " +
-                                        "FILTER (?startTime <= "+ curTimeInDecimal + ") " +
-                                        "?carparkChargeIRI cdit:baseRate ?baseRate. " +
-                                        "?carparkChargeIRI cdit:baseRateTimeUnitInMins ?baseRateTimeUnitInMins. " +
-                                    "} " +
-                                    "UNION " +
-                                    "{ "+
-                                        //#Looks for a pattern where BOTH the start & end time satisfies the time constraint, if only the start & end time is present
-                                        "?carparkIRI a cdit:Carpark. " + //For performance reasons. Selecting this will make the query fast. (Select than filter)
-                                        "?carparkIRI " + rateRelationshipIRI + " ?carparkChargeIRI. " +
-                                        "?carparkIRI cdit:hasLocationCategory ?locationCategoryIRI. " +
-                                        "?carparkChargeIRI cdit:startTime ?startTime. " +
-                                        "?carparkChargeIRI cdit:endTime ?endTime. " +
-                                        "FILTER (?endTime >= " + curTimeInDecimal +" && ?startTime <= " + curTimeInDecimal + ") " +
-                                        "?carparkChargeIRI cdit:baseRate ?baseRate. " +
-                                        "?carparkChargeIRI cdit:baseRateTimeUnitInMins ?baseRateTimeUnitInMins. " +
-                                    "} " +
-                                "} " +
-                                "GROUP BY ?locationCategoryIRI " +
-                            "} " +
-                        "} " +
-                    "} " +
-                    //Filter where the average rate is the max rate obtained from the subquery
-                    "FILTER (?avgRate = ?maxRate) " +
-                "} " +
-                "ORDER BY (?locationCategoryName) ";
+        getCategoryWithMostCarpark();
+        getMaxAverageRateForEachRegion("Saturday", "cdit:hasSaturdayCarparkCharges", "20");
+        getMaxAverageRateForEachRegion("Weekday", "cdit:hasWeekdayCarparkCharges", "20");
+        getMaxAverageRateForEachRegion("Sunday", "cdit:hasSundayCarparkCharges", "20");
 
-        TupleQuery query = repositoryConnection.prepareTupleQuery(queryString);
+        if (resultCache != null) {
+            System.out.println(resultCache.getReport());
+        }
+    }
+
+    public void getMaxAverageRateForEachRegion(String dayOfWeek, String rateRelationshipIRI, String curTimeInDecimal) {
 
-        TupleQueryResult result = query.evaluate();
+        TupleQuery query = preparedQueries.get(MAX_AVERAGE_RATE_QUERY);
+        query.setBinding("rateRelationship", createRelationshipIRI(rateRelationshipIRI));
+        query.setBinding("curTime", vf.createLiteral(new BigDecimal(curTimeInDecimal.trim()))); //Rejects anything but a number
+
+        List<BindingSet> solutions = evaluate(MAX_AVERAGE_RATE_QUERY, query);
 
         System.out.println("--> Highest " + dayOfWeek + " Rate for Each Category:");
 
-        while (result.hasNext()) {
-            BindingSet solution = result.next();
+        for (BindingSet solution : solutions) {
             System.out.println("    Carpark Name: " + solution.getValue("carparkName1").stringValue() + "; Max Rate: " + solution.getValue("maxRate").stringValue() + "; Location Category: " + solution.getValue("locationCategoryName").stringValue());
         }
     }
@@ -108,25 +227,21 @@ public class DataRetrieval {
 
     public void getCategoryWithMostCarpark (){
 
-        String queryString = "PREFIX cdit:<http://cdit#> " +
-                "SELECT ((COUNT(?carpark)) as ?count) ?name " +
-                "WHERE { " +
-                    "?locationCategory cdit:isInLocationCategory ?carpark. " +
-                    "?locationCategory cdit:name ?name. " +
-                "} " +
-                "GROUP BY ?name " +
-                "ORDER BY DESC (?count) " +
-                "LIMIT 1 ";
-
-        TupleQuery query = repositoryConnection.prepareTupleQuery(queryString);
+        TupleQuery query = preparedQueries.get(CATEGORY_WITH_MOST_CARPARK_QUERY);
 
-        TupleQueryResult result = query.evaluate();
+        List<BindingSet> solutions = evaluate(CATEGORY_WITH_MOST_CARPARK_QUERY, query);
 
-        while (result.hasNext()) {
-            BindingSet solution = result.next();
+        for (BindingSet solution : solutions) {
             System.out.println("--> Category With Most Carparks:");
             System.out.println("No of carpark: " + solution.getValue("count").stringValue());
             System.out.println("Location: " + solution.getValue("name").stringValue());
         }
     }
+
+    //Close the connection. The repository, which may be shared with KBController, is left for the application to shut down
+    void shutDown() {
+
+        repositoryConnection.close();
+        System.out.println("Connection Terminated.");
+    }
 }
@@ -0,0 +1,51 @@
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
+import org.eclipse.rdf4j.model.ValueFactory;
+
+import java.util.HashSet;
+import java.util.Set;
+
+//Statements about the nodes shared between carparks (location categories, carpark charges and charge types) which were already handed over
+//to be written during this ingestion run. Each of them is then only sent to the database once, instead of once for every batch with a carpark
+//which uses the node. Only shared statements are kept, so the set grows with the number of distinct categories and charges rather than carparks.
+//The set is exact, as dropping a statement on a false match would lose it. Not thread safe: it is only used by the thread building the batches
+public class EmittedStatements {
+
+    private final ValueFactory vf;
+    private final Set<Statement> emitted = new HashSet<>();
+
+    //Counted over the whole run, including the statements forgotten by clear
+    private long emittedCount = 0;
+    private long suppressed = 0;
+
+    public EmittedStatements(ValueFactory vf) {
+        this.vf = vf;
+    }
+
+    //Remember the statement, and return whether it is the first time it is emitted
+    public boolean markEmitted(Resource subject, IRI predicate, Value object) {
+
+        if (emitted.add(vf.createStatement(subject, predicate, object))) {
+            emittedCount++;
+            return true;
+        }
+
+        suppressed++;
+        return false;
+    }
+
+    //Forget every statement, e.g. after statements were removed from the database, so that they are sent again
+    public void clear() {
+        emitted.clear();
+    }
+
+    public long getEmittedCount() {
+        return emittedCount;
+    }
+
+    public long getSuppressedCount() {
+        return suppressed;
+    }
+}
@@ -0,0 +1,103 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.Properties;
+
+//Durable record of how far KBController got through the cleaned output file: the byte offset just past the last carpark of the last committed
+//batch, the number of batches committed, and the named graph being loaded. It is saved after every committed batch, so an interrupted load
+//is resumed from there. The statements of a carpark are always the same (its IRIs come from its name and the content of its charges), so a
+//batch which was committed just before the load died and is sent again on resuming changes nothing.
+//The checkpoint also holds the size and modification time of the file, and is ignored if the file changed since
+public class IngestionCheckpoint {
+
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path checkpointPath;
+    private final File inputFile;
+
+    private long offset = 0;
+    private long committedBatches = 0;
+    private String graph;
+
+    private IngestionCheckpoint(String checkpointLocation, File inputFile) {
+        this.checkpointPath = Paths.get(checkpointLocation);
+        this.inputFile = inputFile;
+    }
+
+    //Load the checkpoint of the input file. A checkpoint which is missing or of another version of the file starts from the beginning
+    public static IngestionCheckpoint load(String checkpointLocation, File inputFile) throws IOException {
+
+        IngestionCheckpoint checkpoint = new IngestionCheckpoint(checkpointLocation, inputFile);
+
+        if (!Files.exists(checkpoint.checkpointPath)) {
+            return checkpoint;
+        }
+
+        Properties prop = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint.checkpointPath)) {
+            prop.load(reader);
+        }
+
+        if (!inputFile.getAbsolutePath().equals(prop.getProperty("input")) || inputFile.length() != Long.parseLong(prop.getProperty("length", "-1"))
+                || inputFile.lastModified() != Long.parseLong(prop.getProperty("lastmodified", "-1"))) {
+
+            System.out.println("Ignoring the checkpoint at " + checkpointLocation + ", as it is of another file.");
+            return checkpoint;
+        }
+
+        checkpoint.offset = Long.parseLong(prop.getProperty("offset"));
+        checkpoint.committedBatches = Long.parseLong(prop.getProperty("batches"));
+        checkpoint.graph = prop.getProperty("graph");
+
+        return checkpoint;
+    }
+
+    public boolean isResuming() {
+        return offset > 0;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public long getCommittedBatches() {
+        return committedBatches;
+    }
+
+    //Named graph the load was writing into, or null when it was writing into the default graph
+    public String getGraph() {
+        return graph;
+    }
+
+    public void setGraph(String graph) {
+        this.graph = graph;
+    }
+
+    //Record a committed batch which ends at the given offset. The checkpoint is replaced atomically, so a crash leaves the old or the new one
+    public synchronized void batchCommitted(long batchEndOffset) throws IOException {
+
+        offset = batchEndOffset;
+        committedBatches++;
+
+        Properties prop = new Properties();
+        prop.setProperty("input", inputFile.getAbsolutePath());
+        prop.setProperty("length", Long.toString(inputFile.length()));
+        prop.setProperty("lastmodified", Long.toString(inputFile.lastModified()));
+        prop.setProperty("offset", Long.toString(offset));
+        prop.setProperty("batches", Long.toString(committedBatches));
+        if (graph != null) prop.setProperty("graph", graph);
+
+        Path temporaryPath = Paths.get(checkpointPath + TEMPORARY_SUFFIX);
+
+        try (FileOutputStream out = new FileOutputStream(temporaryPath.toFile())) {
+            prop.store(out, "Ingestion checkpoint of KBController");
+            out.getFD().sync();
+        }
+
+        Files.move(temporaryPath, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Remove the checkpoint once the whole file is loaded, so that the next load starts from the beginning
+    public void delete() throws IOException {
+        Files.deleteIfExists(checkpointPath);
+    }
+}
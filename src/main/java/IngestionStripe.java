@@ -0,0 +1,107 @@
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.impl.TreeModel;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.io.Closeable;
+
+//One of the writers of a striped load in KBController. Every carpark is given to the same stripe, and each stripe builds its own batches
+//and writes them over its own connection on its own background thread, with a transaction per batch
+public class IngestionStripe implements Closeable {
+
+    private final int stripeNumber;
+    private final RepositoryConnection connection;
+    private final BatchFlusher batchFlusher;
+    private final BatchSizer batchSizer;
+    private final UploadFormat uploadFormat;
+    private final Resource[] contexts;
+
+    //Batch currently being built, and the number of carparks added to it
+    private Model batchModel = new TreeModel();
+    private int batchCounter = 0;
+
+    //Updated by the background thread, and read once the stripe is drained
+    private volatile long statementsWritten = 0;
+    private volatile long batchesWritten = 0;
+    private volatile long writeNanos = 0;
+
+    //The batches are written into the given contexts, or into the contexts of their statements when there are none
+    public IngestionStripe(int stripeNumber, RepositoryConnection connection, int maxInFlightBatches, BatchSizer batchSizer, UploadFormat uploadFormat, Resource... contexts) {
+        this.stripeNumber = stripeNumber;
+        this.connection = connection;
+        this.batchSizer = batchSizer;
+        this.uploadFormat = uploadFormat;
+        this.contexts = contexts;
+        this.batchFlusher = new BatchFlusher(this::writeBatch, maxInFlightBatches, "ingestion-stripe-" + stripeNumber);
+    }
+
+    public Model getBatchModel() {
+        return batchModel;
+    }
+
+    //Count a carpark which was added to the batch model, and hand the batch over to be written once it is full
+    public void carparkAdded() {
+
+        if (batchSizer.isFull(batchModel, batchCounter)) {
+            batchFlusher.submit(batchModel);
+            batchModel = new TreeModel(); //Start a new model, as the full one may still be being written
+            batchCounter = 0;
+        }
+
+        batchCounter++;
+    }
+
+    //Write what is left in the current batch, and wait until every batch of the stripe is written
+    public void flush() {
+
+        if (!batchModel.isEmpty()) {
+            batchFlusher.submit(batchModel);
+        }
+
+        batchFlusher.drain();
+
+        batchModel = new TreeModel();
+        batchCounter = 0;
+    }
+
+    private void writeBatch(Model model) {
+
+        long start = System.nanoTime();
+
+        connection.begin();
+
+        try {
+            uploadFormat.add(connection, model, contexts);
+            connection.commit();
+        }
+
+        catch (RuntimeException e) {
+            if (connection.isActive()) connection.rollback();
+            batchSizer.batchWritten(model.size(), System.nanoTime() - start, true);
+            throw e;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        batchSizer.batchWritten(model.size(), elapsedNanos, false);
+
+        writeNanos += elapsedNanos;
+        statementsWritten += model.size();
+        batchesWritten++;
+    }
+
+    //Throughput of the stripe, counting only the time spent writing to the database
+    public String getReport() {
+
+        double seconds = writeNanos / 1e9;
+
+        return "Writer " + stripeNumber + ": " + statementsWritten + " statements in " + batchesWritten + " batches, "
+                + ((seconds > 0) ? Math.round(statementsWritten / seconds) : 0) + " statements/sec"
+                + (batchSizer.isAdaptive() ? ", batches of " + batchSizer.getTargetStatements() + " statements at the end." : ".");
+    }
+
+    @Override
+    public void close() {
+        batchFlusher.close();
+        connection.close();
+    }
+}
@@ -1,23 +1,50 @@
+import org.eclipse.rdf4j.common.iteration.Iterations;
 import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
 import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.Value;
 import org.eclipse.rdf4j.model.ValueFactory;
 import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
 
 import org.eclipse.rdf4j.model.impl.TreeModel;
 import org.eclipse.rdf4j.model.vocabulary.RDF;
+import org.eclipse.rdf4j.repository.Repository;
 import org.eclipse.rdf4j.repository.RepositoryConnection;
-import org.eclipse.rdf4j.repository.http.HTTPRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
 import org.json.JSONObject;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
 
 public class KBController {
 
-    private int BATCH_SIZE = 1;
+    private BatchSizer batchSizer;
 
-    private HTTPRepository repositoryManager;
+    //Shares the IRIs and literals of carparks, categories and rates between the statements which use them
+    private ValueInterner valueInterner;
+
+    //Statements about shared nodes which were already sent in this run. Null when every batch carries all of its statements
+    private EmittedStatements emittedStatements;
+
+    //Whether the inverse of each relationship (e.g. isInLocationCategory) is stored along with it. DataRetrieval only follows the forward ones
+    private boolean inverseTriples = true;
+
+    private Repository repositoryManager;
     private RepositoryConnection repositoryConnection;
 
     private static ValueFactory vf = SimpleValueFactory.getInstance();
@@ -33,6 +60,15 @@ public class KBController {
     private IRI carparkChargeEntity = vf.createIRI(base, "CarparkCharge");
     private IRI carparkChargeTypeEntity = vf.createIRI(base, "CarparkChargeType");
 
+    //List of carpark charge types
+    private IRI pricePerEntryChargeTypeEntity = vf.createIRI(base, "PricePerEntry");
+    private IRI pricePerUnitTimeChargeTypeEntityIRI = vf.createIRI(base, "PricePerUnitTime");
+    private IRI dailyPricePerUnitTimeChargeTypeEntityIRI = vf.createIRI(base, "DailyPricePerUnitTime");
+
+    //Timing of daily rates
+    private Literal dailyStartTime = vf.createLiteral(0f);
+    private Literal dailyEndTime = vf.createLiteral(24.59f);
+
 
     //List of global attribute (Entity(IRI) to literal)
     private IRI nameAttribute = vf.createIRI(base, "name");
@@ -59,7 +95,51 @@ public class KBController {
     private IRI hasCarparkChargeType = vf.createIRI(base, "hasCarparkChargeType"); //Domain: CarparkChargeEntity, Range: CarparkChargeType
     private IRI isChargedTypeOfCarpark = vf.createIRI(base, "isChargedByCarpark"); //Inverse of hasCarparkChargeType
 
-    private BufferedReader jsonReader;
+    //Keys of the details of a carpark charge, and their attributes, in the order they are hashed into the IRI of the charge
+    private static final String[] CHARGE_DETAILS_KEYS = {"timing", "pricePerEntry", "pricePerUnitTime", "dailyPricePerUnitTime"};
+    private static final String[] CHARGE_ATTRIBUTES = {"startTime", "endTime", "baseRate", "baseRateTimeUnitInMins", "subsequentRate", "subsequentRateTimeUnitInMins"};
+
+    //Day of the charges in each rate slot of a CleanedCarpark
+    private static final String[] RATE_SLOT_DAYS = {"weekday", "weekday", "saturday", "saturday", "sunday", "sunday"};
+
+    private String cleanedJSONFileLocation;
+    private boolean binaryCleanedOutput = false;
+    private String cleanedDeltaFileLocation;
+    private String manifestLocation;
+    //Checkpoint of the cleaned file being loaded, and the offset just past the last carpark added to the batch (a line of the JSON file or a
+    //record of the binary file). Null when not checkpointing
+    private String checkpointLocation;
+    private IngestionCheckpoint checkpoint;
+    private long lineEndOffset = 0;
+
+    //Batch currently being built, and the number of carparks added to it
+    private Model batchModel = new TreeModel();
+    private int batchCounter = 0;
+
+    //Writes the full batches in the background. Null when the batches are written on the calling thread
+    private BatchFlusher batchFlusher;
+
+    //Writers of a striped load over several connections, indexed by the hash of the carpark IRI. Null when loading over repositoryConnection
+    private IngestionStripe[] ingestionStripes;
+
+    //Named graph this run is loaded into, and the contexts of every read and write of the run. Null and no contexts when loading into the default graph
+    private IRI loadGraph;
+    private Resource[] loadContexts = new Resource[0];
+
+    //Serializes the batches for graphDB
+    private UploadFormat uploadFormat;
+
+    //Apply the delta file by sending only the statements which changed, instead of removing and loading the changed carparks in full
+    private boolean deltaDiff = false;
+
+    //Give the dataset a new version after every ingestion, for the query result cache of DataRetrieval. Always done with named graphs
+    private boolean datasetVersions = false;
+
+    //Writes the batches to RDF files instead of the database. Null when loading the database
+    private RDFExporter rdfExporter;
+
+    //Drops the graphs of earlier runs once the graph of this run is current
+    private Thread staleGraphDropper;
 
     //Default constructor
     public KBController() {
@@ -71,21 +151,109 @@ public class KBController {
             Properties prop = new Properties();
             prop.load(DataRetrieval.class.getClassLoader().getResourceAsStream("config.properties"));
 
-            BATCH_SIZE = Integer.parseInt(prop.get("graphdb.batchsize").toString());
+            //Initialize connection to the database chosen by graphdb.backend
+            initialize(prop, RepositoryBackend.getRepository(prop));
+        }
+
+        catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    //Constructor which ingests into the given repository (e.g. an embedded store), with the settings in the given properties instead of config.properties
+    public KBController(Properties prop, Repository repository) {
+
+        System.out.println("Starting data transformation and ingestion process..");
+
+        initialize(prop, repository);
+    }
+
+    private void initialize(Properties prop, Repository repository) {
+
+        batchSizer = new BatchSizer(prop);
+        valueInterner = new ValueInterner(vf, base, Integer.parseInt(prop.getProperty("graphdb.valuecachesize", "10000")));
+
+        inverseTriples = Boolean.parseBoolean(prop.getProperty("graphdb.inversetriples", "true"));
+        datasetVersions = Integer.parseInt(prop.getProperty("dataretrieval.cachesize", "0").trim()) > 0;
+
+        if (Boolean.parseBoolean(prop.getProperty("graphdb.suppresssharedstatements", "false"))) {
+            emittedStatements = new EmittedStatements(vf);
+        }
+
+        repositoryManager = repository;
+        repositoryConnection = repositoryManager.getConnection();
+        uploadFormat = new UploadFormat(prop, repositoryManager);
+
+        boolean incremental = Boolean.parseBoolean(prop.getProperty("datacleaner.incremental", "false"));
+
+        //A delta also removes carparks, which can only be done in the database
+        if (!prop.getProperty("graphdb.export", "").isEmpty() && !incremental) {
+            rdfExporter = createRDFExporter(prop);
+        }
+
+        //The exported files are loaded into a repository of their own, without named graphs
+        if (Boolean.parseBoolean(prop.getProperty("graphdb.namedgraphs", "false")) && rdfExporter == null) {
+
+            //A delta only holds the changes, so it is applied to the graph which is already current
+            loadGraph = incremental ? LoadGraphs.getCurrentGraph(repositoryConnection) : null;
+            if (loadGraph == null) loadGraph = LoadGraphs.createLoadGraph();
+            loadContexts = new Resource[] {loadGraph};
+        }
+
+        int inFlightBatches = Integer.parseInt(prop.getProperty("graphdb.inflightbatches", "0"));
+        int connections = Integer.parseInt(prop.getProperty("graphdb.connections", "1"));
+
+        if (connections > 1 && rdfExporter == null) {
+
+            //Each stripe writes on its own thread, so it needs room for at least the batch being written
+            ingestionStripes = new IngestionStripe[connections];
+            for (int stripe = 0; stripe < connections; stripe++) {
+                ingestionStripes[stripe] = new IngestionStripe(stripe + 1, repositoryManager.getConnection(), Math.max(inFlightBatches, 1), new BatchSizer(prop), uploadFormat, loadContexts);
+            }
+
+            System.out.println("Loading over " + connections + " connections.");
+        }
+
+        else if (inFlightBatches > 0) {
+            batchFlusher = new BatchFlusher(this::writeBatch, inFlightBatches);
+        }
+
+        cleanedJSONFileLocation = prop.get("cleanedoutput.filename").toString();
+        binaryCleanedOutput = prop.getProperty("cleanedoutput.format", "json").equalsIgnoreCase("binary");
+
+        if (!prop.getProperty("graphdb.checkpoint", "").isEmpty() && rdfExporter == null) {
+            checkpointLocation = prop.getProperty("graphdb.checkpoint");
+        }
+
+        if (incremental) {
+            deltaDiff = Boolean.parseBoolean(prop.getProperty("graphdb.deltadiff", "false"));
+            cleanedDeltaFileLocation = prop.get("cleanedoutput.deltafilename").toString();
+            manifestLocation = prop.get("datacleaner.manifest").toString();
+        }
+
+        System.out.println("Database connected.");
+    }
 
-            //Initialize connection to database
-            String databaseURL = prop.get("graphdb.url").toString();
-            repositoryManager = new HTTPRepository(databaseURL);
-            repositoryConnection = repositoryManager.getConnection();
+    //Exporter of the batches to the directory in graphdb.export, in the format in graphdb.export.format
+    private static RDFExporter createRDFExporter(Properties prop) {
 
-            String cleanedJSONFileLocation = prop.get("cleanedoutput.filename").toString();
-            jsonReader = new BufferedReader(new FileReader(cleanedJSONFileLocation));
+        String directory = prop.getProperty("graphdb.export");
+        RDFFormat format = UploadFormat.parseFormat(prop.getProperty("graphdb.export.format", "ntriples").trim().toLowerCase());
 
-            System.out.println("Database connected.");
+        if (format == null) {
+            throw new IllegalArgumentException("graphdb.export.format must be an RDF format, e.g. ntriples or binary");
+        }
+
+        try {
+            RDFExporter exporter = new RDFExporter(directory, format, Boolean.parseBoolean(prop.getProperty("graphdb.export.gzip", "true")),
+                    Integer.parseInt(prop.getProperty("graphdb.export.chunkstatements", "500000")));
+
+            System.out.println("Exporting to " + directory + " instead of loading the database.");
+            return exporter;
         }
 
         catch (IOException e) {
-            e.printStackTrace();
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -97,47 +265,512 @@ public class KBController {
             public void run() {
                 System.out.println("Executing shutdown hook...");
                 application.shutDown();
+                RepositoryBackend.shutDownAll(); //Only after the connection is closed and the stale graphs are dropped
             }
         });
 
-        application.readJCleandedSONFile();
+        application.readCleanedFile();
+
+    }
+
+    //Read the cleaned output file in the format it was written by DataCleaner
+    public void readCleanedFile() {
+
+        if (cleanedDeltaFileLocation != null) {
+            readCleanedDeltaFile();
+        }
+
+        else if (binaryCleanedOutput) {
+            readCleanedBinaryFile();
+        }
 
+        else {
+            readJCleandedSONFile();
+        }
     }
 
+    //Read the cleaned output file of JSON objects. With a checkpoint, the load resumes just past the last committed batch of an interrupted load
     public void readJCleandedSONFile() {
 
         try {
 
+            File cleanedJSONFile = new File(cleanedJSONFileLocation);
+            checkpoint = openCheckpoint(cleanedJSONFile);
+            lineEndOffset = (checkpoint != null) ? checkpoint.getOffset() : 0;
+            printLoadGraph(); //A resumed load goes on in the graph of the checkpoint
+
+            FileInputStream jsonInput = new FileInputStream(cleanedJSONFile);
+            jsonInput.getChannel().position(lineEndOffset);
+
+            try (CountingLineReader jsonReader = new CountingLineReader(jsonInput, StandardCharsets.UTF_8, lineEndOffset)) {
+
+                String curLine;
+
+                while ((curLine = jsonReader.readLine()) != null) {
+                    lineEndOffset = jsonReader.getOffset();
+                    JSONObject curCarpark = new JSONObject(curLine);
+                    addCarparkToBatch(curCarpark);
+                }
+            }
+
+            flushBatch();
+            publishLoadGraph();
+
+            if (checkpoint != null) {
+                checkpoint.delete();
+            }
+        }
+
+        catch (FileNotFoundException e) {
+            e.printStackTrace();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        finally {
+            checkpoint = null;
+        }
+    }
+
+    private void printLoadGraph() {
+
+        if (loadGraph != null) {
+            System.out.println("Loading into graph " + loadGraph + ".");
+        }
+    }
+
+    //Checkpoint of the cleaned file, or null when checkpointing is off. The batches of a striped load are committed out of order,
+    //so there is no offset before which everything is committed, and striped loads are not checkpointed
+    private IngestionCheckpoint openCheckpoint(File cleanedFile) throws IOException {
+
+        if (checkpointLocation == null) {
+            return null;
+        }
+
+        if (ingestionStripes != null) {
+            System.out.println("No checkpoints are taken when loading over several connections.");
+            return null;
+        }
+
+        IngestionCheckpoint fileCheckpoint = IngestionCheckpoint.load(checkpointLocation, cleanedFile);
+
+        //The rest of the file has to go into the graph the interrupted load was writing into, which is not current yet
+        if (fileCheckpoint.isResuming() && (fileCheckpoint.getGraph() != null) != (loadGraph != null)) {
+            System.out.println("Ignoring the checkpoint at " + checkpointLocation + ", as graphdb.namedgraphs was changed since.");
+            fileCheckpoint.delete();
+            fileCheckpoint = IngestionCheckpoint.load(checkpointLocation, cleanedFile);
+        }
+
+        if (fileCheckpoint.isResuming()) {
+
+            System.out.println("Resuming from byte " + fileCheckpoint.getOffset() + ", after " + fileCheckpoint.getCommittedBatches() + " committed batches.");
+
+            if (fileCheckpoint.getGraph() != null) {
+                loadGraph = vf.createIRI(fileCheckpoint.getGraph());
+                loadContexts = new Resource[] {loadGraph};
+            }
+        }
+
+        fileCheckpoint.setGraph((loadGraph != null) ? loadGraph.stringValue() : null);
+        return fileCheckpoint;
+    }
+
+    //Remove every changed or removed carpark, then load the added and changed carparks in full
+    private void applyCleanedDeltaFile() throws IOException {
+
+        try (BufferedReader deltaReader = new BufferedReader(new InputStreamReader(new FileInputStream(cleanedDeltaFileLocation), StandardCharsets.UTF_8))) {
+
             String curLine;
-            int counter = 0;
-            Model model = new TreeModel(); //Create new inmem database to store cache
 
-            while ((curLine = jsonReader.readLine()) != null) {
+            while ((curLine = deltaReader.readLine()) != null) {
 
                 JSONObject curCarpark = new JSONObject(curLine);
-                model = processCarparkJSONObject(curCarpark, model);
 
-                if (counter > BATCH_SIZE) {
-                    writeToDatabase(model); //Flush to database
-                    model = new TreeModel(); //Reinitialize the model
-                    counter = 0; //Reset counter
+                if (curCarpark.getString("delta").equals("remove")) {
+                    flushBatch();
+                    removeCarparkFromDatabase(curCarpark.getString("name"));
                 }
 
-                counter++;
+                else {
+                    addCarparkToBatch(curCarpark);
+                }
+            }
+        }
+    }
+
+    //Compare the statements of each carpark in the delta file with the statements the database holds for it, and only send the statements
+    //which were removed or added, with a transaction per batch of carparks. A carpark whose tariffs did not change costs a read and nothing else
+    private void applyCleanedDeltaFileAsDiff() throws IOException {
+
+        //Rows of each carpark in the delta file, which are none for a removed carpark
+        Map<String, List<JSONObject>> deltaCarparks = new LinkedHashMap<>();
+
+        try (BufferedReader deltaReader = new BufferedReader(new InputStreamReader(new FileInputStream(cleanedDeltaFileLocation), StandardCharsets.UTF_8))) {
+
+            String curLine;
+
+            while ((curLine = deltaReader.readLine()) != null) {
+
+                JSONObject curCarpark = new JSONObject(curLine);
+                List<JSONObject> carparkRows = deltaCarparks.computeIfAbsent(curCarpark.getString("name"), name -> new ArrayList<>());
+
+                if (!curCarpark.getString("delta").equals("remove")) {
+                    carparkRows.add(curCarpark);
+                }
             }
+        }
 
-            if (!model.isEmpty()) {
-                writeToDatabase(model); //Flush to database
+        Model removals = new TreeModel();
+        Model additions = new TreeModel();
+        Set<Resource> droppedCharges = new HashSet<>();
+        int carparksInBatch = 0;
+
+        long statementsRemoved = 0, statementsAdded = 0;
+        int unchangedCarparks = 0;
+
+        for (Map.Entry<String, List<JSONObject>> deltaCarpark : deltaCarparks.entrySet()) {
+
+            int changesBefore = removals.size() + additions.size();
+            diffCarpark(deltaCarpark.getKey(), deltaCarpark.getValue(), removals, additions, droppedCharges);
+            if (removals.size() + additions.size() == changesBefore) unchangedCarparks++;
+            carparksInBatch++;
+
+            if (batchSizer.isFull(removals.size() + additions.size(), carparksInBatch)) {
+                statementsRemoved += removals.size();
+                statementsAdded += additions.size();
+                commitDiff(removals, additions, droppedCharges);
+                removals = new TreeModel();
+                additions = new TreeModel();
+                droppedCharges = new HashSet<>();
+                carparksInBatch = 0;
             }
         }
 
-        catch (FileNotFoundException e) {
+        statementsRemoved += removals.size();
+        statementsAdded += additions.size();
+        commitDiff(removals, additions, droppedCharges);
+
+        System.out.println("Delta of " + deltaCarparks.size() + " carparks applied: " + statementsRemoved + " statements removed, " + statementsAdded
+                + " added, " + unchangedCarparks + " carparks unchanged.");
+    }
+
+    //Add the statements to remove and to add to bring the carpark in the database to the given rows, which are none when it was removed.
+    //The statements of the carpark itself (with the carpark as subject or object) are compared exactly. The statements about the charges and
+    //categories it links to are shared with other carparks, so they are only sent for the nodes it did not link to before, and the charges
+    //it no longer links to are collected to be removed once no carpark links to them
+    private void diffCarpark(String carparkName, List<JSONObject> carparkRows, Model removals, Model additions, Set<Resource> droppedCharges) {
+
+        IRI curCarPark = createCarparkIRI(carparkName);
+
+        Model newStatements = new TreeModel();
+        for (JSONObject carparkRow : carparkRows) {
+            processCarparkJSONObject(carparkRow, newStatements);
+        }
+
+        Model newCarparkStatements = new TreeModel();
+        Model newSharedStatements = new TreeModel();
+        for (Statement statement : newStatements) {
+            if (statement.getSubject().equals(curCarPark) || statement.getObject().equals(curCarPark)) newCarparkStatements.add(statement);
+            else newSharedStatements.add(statement);
+        }
+
+        //Read without the contexts, to compare with the new statements
+        Model oldCarparkStatements = new TreeModel();
+        for (Statement statement : Iterations.asList(repositoryConnection.getStatements(curCarPark, null, null, false, loadContexts))) {
+            oldCarparkStatements.add(statement.getSubject(), statement.getPredicate(), statement.getObject());
+        }
+        for (Statement statement : Iterations.asList(repositoryConnection.getStatements(null, null, curCarPark, false, loadContexts))) {
+            oldCarparkStatements.add(statement.getSubject(), statement.getPredicate(), statement.getObject());
+        }
+
+        for (Statement statement : oldCarparkStatements) {
+            if (!newCarparkStatements.contains(statement)) removals.add(statement);
+        }
+
+        for (Statement statement : newCarparkStatements) {
+            if (!oldCarparkStatements.contains(statement)) additions.add(statement);
+        }
+
+        Set<Value> oldLinkedNodes = oldCarparkStatements.filter(curCarPark, null, null).objects();
+        Set<Value> newLinkedNodes = newCarparkStatements.filter(curCarPark, null, null).objects();
+
+        //Send what is known about the nodes linked for the first time, and the nodes they link to (e.g. the charge types of a new charge)
+        Deque<Value> nodesToSend = new ArrayDeque<>();
+        for (Value linkedNode : newLinkedNodes) {
+            if (!oldLinkedNodes.contains(linkedNode)) nodesToSend.add(linkedNode);
+        }
+
+        Set<Value> sentNodes = new HashSet<>();
+        while (!nodesToSend.isEmpty()) {
+
+            Value node = nodesToSend.poll();
+            if (!(node instanceof Resource) || !sentNodes.add(node)) continue;
+
+            for (Statement statement : newSharedStatements.filter((Resource) node, null, null)) {
+                additions.add(statement);
+                nodesToSend.add(statement.getObject());
+            }
+        }
+
+        for (IRI chargesRelationship : new IRI[] {hasWeekdayCarparkCharges, hasSaturdayCarparkCharges, hasSundayCarparkCharges}) {
+            for (Value oldCharge : oldCarparkStatements.filter(curCarPark, chargesRelationship, null).objects()) {
+                if (!newLinkedNodes.contains(oldCharge)) droppedCharges.add((Resource) oldCharge);
+            }
+        }
+
+        if (carparkRows.isEmpty()) {
+            System.out.println("    Removed: " + carparkName);
+        }
+    }
+
+    //Remove and add the statements of a batch of carpark diffs in a single transaction, then remove the charges no carpark links to any more
+    private void commitDiff(Model removals, Model additions, Set<Resource> droppedCharges) {
+
+        if (removals.isEmpty() && additions.isEmpty()) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        int chargesRemoved;
+
+        repositoryConnection.begin();
+
+        try {
+            repositoryConnection.remove(removals, loadContexts);
+            uploadFormat.add(repositoryConnection, additions, loadContexts);
+            chargesRemoved = removeUnlinkedCharges(droppedCharges);
+            repositoryConnection.commit();
+            failed = false;
+        }
+
+        catch (RuntimeException e) {
+            if (repositoryConnection.isActive()) repositoryConnection.rollback();
+            throw e;
+        }
+
+        finally {
+            batchSizer.batchWritten(removals.size() + additions.size(), System.nanoTime() - start, failed);
+        }
+
+        System.out.println("Changes committed: " + removals.size() + " statements removed, " + additions.size() + " added.");
+
+        //The removed charges have to be sent again by the next carpark using them
+        if (chargesRemoved > 0 && emittedStatements != null) {
+            emittedStatements.clear();
+        }
+    }
+
+    //Read the binary cleaned output file through a memory mapping. The carparks are mapped to statements as they are read, without any JSON.
+    //With a checkpoint, the load resumes just past the last committed batch of an interrupted load
+    public void readCleanedBinaryFile() {
+
+        try {
+
+            checkpoint = openCheckpoint(new File(cleanedJSONFileLocation));
+            printLoadGraph(); //A resumed load goes on in the graph of the checkpoint
+
+            try (CleanedCarparkBinaryReader binaryReader = new CleanedCarparkBinaryReader(cleanedJSONFileLocation)) {
+
+                if (checkpoint != null) {
+                    binaryReader.skipTo(checkpoint.getOffset());
+                }
+
+                CleanedCarpark curCarpark;
+
+                while ((curCarpark = binaryReader.next()) != null) {
+                    lineEndOffset = binaryReader.getPosition();
+                    addCarparkToBatch(curCarpark);
+                }
+            }
+
+            flushBatch();
+            publishLoadGraph();
+
+            if (checkpoint != null) {
+                checkpoint.delete();
+            }
+        }
+
+        catch (IOException e) {
             e.printStackTrace();
-        } catch (IOException e) {
+        }
+
+        finally {
+            checkpoint = null;
+        }
+    }
+
+    //Apply the delta file written by DataCleaner in incremental mode. The carparks to be removed come first, and are removed from the
+    //database straight away. The manifest of the delta is only committed once everything is ingested, so a failed run is redone in full next time
+    public void readCleanedDeltaFile() {
+
+        printLoadGraph();
+
+        try {
+
+            if (deltaDiff) {
+                applyCleanedDeltaFileAsDiff();
+            }
+
+            else {
+                applyCleanedDeltaFile();
+            }
+
+            flushBatch();
+            publishLoadGraph();
+
+            if (CarparkManifest.commitPending(manifestLocation)) {
+                System.out.println("Manifest updated.");
+            }
+        }
+
+        catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    //Ingest the carparks handed over by DataCleaner until END_OF_CLEANED_CARPARKS is received, without going through the cleaned file.
+    //Returns false, without publishing anything, when DataCleaner ended the queue with CLEANING_FAILED
+    public boolean readCleanedCarparkQueue(BlockingQueue<CleanedCarpark> cleanedCarparkQueue) throws InterruptedException {
+
+        printLoadGraph();
+
+        CleanedCarpark curCarpark;
+
+        while ((curCarpark = cleanedCarparkQueue.take()) != DataCleaner.END_OF_CLEANED_CARPARKS) {
+
+            if (curCarpark == DataCleaner.CLEANING_FAILED) {
+                dropLoadGraph();
+                return false;
+            }
+
+            addCarparkToBatch(curCarpark);
+        }
+
+        flushBatch();
+        publishLoadGraph();
+        return true;
+    }
+
+    //Add a carpark to the current batch, and write the batch to the database once it is full
+    public void addCarparkToBatch(JSONObject curCarpark) {
+        addCarparkToBatch(curCarpark.optString("name"), model -> processCarparkJSONObject(curCarpark, model));
+    }
+
+    //Add a cleaned carpark to the current batch, without going through its JSONObject
+    public void addCarparkToBatch(CleanedCarpark curCarpark) {
+        addCarparkToBatch(curCarpark.getName(), model -> processCleanedCarpark(curCarpark, model));
+    }
+
+    private void addCarparkToBatch(String carparkName, Consumer<Model> carparkMapper) {
+
+        if (ingestionStripes != null) {
+
+            IngestionStripe stripe = ingestionStripes[Math.floorMod(createCarparkIRI(carparkName).hashCode(), ingestionStripes.length)];
+            carparkMapper.accept(stripe.getBatchModel());
+            stripe.carparkAdded();
+            return;
+        }
+
+        carparkMapper.accept(batchModel);
+
+        if (batchSizer.isFull(batchModel, batchCounter)) {
+            submitBatch(batchModel); //Flush to database
+            batchModel = new TreeModel(); //Start a new model, as the full one may still be being written
+            batchCounter = 0; //Reset counter
+        }
+
+        batchCounter++;
+    }
+
+    //Write what is left in the current batch to the database, and wait until every batch is written
+    public void flushBatch() {
+
+        if (ingestionStripes != null) {
+            for (IngestionStripe stripe : ingestionStripes) {
+                stripe.flush();
+            }
+        }
+
+        if (!batchModel.isEmpty()) {
+            submitBatch(batchModel); //Flush to database
+        }
+
+        if (batchFlusher != null) {
+            batchFlusher.drain();
+        }
+
+        if (rdfExporter != null) {
+            rdfExporter.flush();
+        }
+
+        batchModel = new TreeModel();
+        batchCounter = 0;
+    }
+
+    //Write a full batch to the database, in the background when batchFlusher is set
+    private void submitBatch(Model model) {
+
+        Runnable onWritten = null;
+
+        //The checkpoint is only moved past the batch once it is written. A checkpoint which could not be saved is reported as such, not as a failed write
+        if (checkpoint != null) {
+            IngestionCheckpoint batchCheckpoint = checkpoint;
+            long batchEndOffset = lineEndOffset;
+            onWritten = () -> saveCheckpoint(batchCheckpoint, batchEndOffset);
+        }
+
+        if (batchFlusher != null) {
+            batchFlusher.submit(model, onWritten);
+        }
+
+        else {
+            writeBatch(model);
+            if (onWritten != null) onWritten.run();
+        }
+    }
+
+    private static void saveCheckpoint(IngestionCheckpoint batchCheckpoint, long batchEndOffset) {
+
+        try {
+            batchCheckpoint.batchCommitted(batchEndOffset);
+        }
+
+        catch (IOException e) {
+            throw new UncheckedIOException("The batch was written, but the checkpoint could not be saved at byte " + batchEndOffset, e);
+        }
+    }
+
+    //Write a batch to the database, and let batchSizer know how long it took
+    private void writeBatch(Model model) {
+
+        long start = System.nanoTime();
+        boolean failed = true;
+
+        try {
+            writeToDatabase(model);
+            failed = false;
+        }
+
+        finally {
+            batchSizer.batchWritten(model.size(), System.nanoTime() - start, failed);
+        }
+    }
+
+    //IRI of the carpark with the given name
+    private IRI createCarparkIRI(String carparkName) {
+        return valueInterner.createNameIRI(carparkName);
+    }
+
+    //Add a statement about a location category, carpark charge or charge type, unless it was already sent in this run
+    private void addSharedStatement(Model model, Resource subject, IRI predicate, Value object) {
+
+        if (emittedStatements == null || emittedStatements.markEmitted(subject, predicate, object)) {
+            model.add(subject, predicate, object);
+        }
+    }
+
     //Map the JSON object to the graph schema
     public Model processCarparkJSONObject(JSONObject inputJsonObj, Model model) {
 
@@ -147,24 +780,50 @@ public class KBController {
 
         System.out.println("    Currently processing: "+inputJsonObj.get("name"));
 
+        IRI curCarPark = addCarparkAndCategory(inputJsonObj.get("name").toString(), inputJsonObj.get("category").toString(), model);
+
+        model = checkRateAvailabilityAndProcessRate(curCarPark, inputJsonObj, model);
+
+        return model;
+
+    }
+
+    //Map the cleaned carpark to the graph schema, straight from its parsed rates. Gives the same statements as its JSONObject
+    public Model processCleanedCarpark(CleanedCarpark carpark, Model model) {
+
+        System.out.println("    Currently processing: " + carpark.getName());
+
+        IRI curCarPark = addCarparkAndCategory(carpark.getName(), carpark.getCategory(), model);
+
+        for (int slot = 0; slot < CleanedCarpark.RATE_SLOTS; slot++) {
+
+            ParsedRate rate = carpark.getRate(slot);
+            if (rate != null) {
+                processCarparkCharge(curCarPark, rate, model, RATE_SLOT_DAYS[slot]);
+            }
+        }
+
+        return model;
+    }
+
+    //Add the carpark, its location category and the link between them, and return the IRI of the carpark
+    private IRI addCarparkAndCategory(String carparkName, String categoryName, Model model) {
+
         //Setting the carpark entity and attributes
-        IRI curCarPark = vf.createIRI(base, inputJsonObj.get("name").toString().replaceAll(" ", ""));
+        IRI curCarPark = createCarparkIRI(carparkName);
         model.add(curCarPark, RDF.TYPE, carparkEntity);
-        model.add(curCarPark, nameAttribute, vf.createLiteral(inputJsonObj.get("name").toString()));
+        model.add(curCarPark, nameAttribute, valueInterner.createLiteral(carparkName));
 
         //Setting the location entity and attribute
-        IRI curlocationCategory = vf.createIRI(base, inputJsonObj.get("category").toString().replaceAll(" ", ""));
-        model.add(curlocationCategory, RDF.TYPE, locationCategoryEntity);
-        model.add(curlocationCategory, nameAttribute, vf.createLiteral(inputJsonObj.get("category").toString()));
+        IRI curlocationCategory = valueInterner.createNameIRI(categoryName);
+        addSharedStatement(model, curlocationCategory, RDF.TYPE, locationCategoryEntity);
+        addSharedStatement(model, curlocationCategory, nameAttribute, valueInterner.createLiteral(categoryName));
 
         //Adding the link between carpark entity and location entity
         model.add(curCarPark, hasLocationCategory, curlocationCategory);
-        model.add(curlocationCategory, isInLocationCategory, curCarPark);
-
-        model = checkRateAvailabilityAndProcessRate(curCarPark, inputJsonObj, model);
-
-        return model;
+        if (inverseTriples) model.add(curlocationCategory, isInLocationCategory, curCarPark);
 
+        return curCarPark;
     }
 
     //Check the types of parking rates available in the JSON object, and execute the corresponding function to process it
@@ -206,19 +865,14 @@ public class KBController {
     //Map the details of the parking rates to the graph schema
     public Model processCarparkChargesType(IRI carparkEntityIRI, JSONObject carparkChargesJsonObj, Model model, String dayOfWeek) {
 
-        //Generate a unique identifier to bind the information together
-        UUID uuid = UUID.randomUUID();
-        IRI carparkChargeEntityIRI = vf.createIRI(base, uuid.toString());
-        model.add(carparkChargeEntityIRI, RDF.TYPE, carparkChargeEntity); //Allows us to quickly identify if a node with a UUID is of a carparkCharge or not. UUID can be used to bind other types of info.
+        //Identifier to bind the information together, which is the same for every charge with the same details
+        IRI carparkChargeEntityIRI = createCarparkChargeIRI(carparkChargesJsonObj);
+        addSharedStatement(model, carparkChargeEntityIRI, RDF.TYPE, carparkChargeEntity); //Allows us to quickly identify if a node with a UUID is of a carparkCharge or not. UUID can be used to bind other types of info.
 
         //Process per-entry type of parking
         if (carparkChargesJsonObj.has("pricePerEntry") && carparkChargesJsonObj.has("timing")) {
 
-            IRI pricePerEntryChargeTypeEntity = vf.createIRI(base, "PricePerEntry");
-
-            model.add(pricePerEntryChargeTypeEntity, RDF.TYPE, carparkChargeTypeEntity);
-            model.add(carparkChargeEntityIRI, hasCarparkChargeType, pricePerEntryChargeTypeEntity);
-            model.add(pricePerEntryChargeTypeEntity, isChargedTypeOfCarpark, carparkChargeEntityIRI);
+            addCarparkChargeType(model, carparkChargeEntityIRI, pricePerEntryChargeTypeEntity);
 
             JSONObject timingDetails = carparkChargesJsonObj.getJSONObject("timing");
             JSONObject rateDetails = carparkChargesJsonObj.getJSONObject("pricePerEntry");
@@ -230,11 +884,7 @@ public class KBController {
 
         else if (carparkChargesJsonObj.has("pricePerUnitTime") && carparkChargesJsonObj.has("timing")) {
 
-            IRI pricePerUnitTimeChargeTypeEntityIRI = vf.createIRI(base, "PricePerUnitTime");
-
-            model.add(pricePerUnitTimeChargeTypeEntityIRI, RDF.TYPE, carparkChargeTypeEntity);
-            model.add(carparkChargeEntityIRI, hasCarparkChargeType, pricePerUnitTimeChargeTypeEntityIRI);
-            model.add(pricePerUnitTimeChargeTypeEntityIRI, isChargedTypeOfCarpark, carparkChargeEntityIRI);
+            addCarparkChargeType(model, carparkChargeEntityIRI, pricePerUnitTimeChargeTypeEntityIRI);
 
             JSONObject timingDetails = carparkChargesJsonObj.getJSONObject("timing");
             JSONObject rateDetails = carparkChargesJsonObj.getJSONObject("pricePerUnitTime");
@@ -246,17 +896,13 @@ public class KBController {
 
         else if (carparkChargesJsonObj.has("dailyPricePerUnitTime")) {
 
-            IRI dailyPricePerUnitTimeChargeTypeEntityIRI = vf.createIRI(base, "DailyPricePerUnitTime");
-
-            model.add(dailyPricePerUnitTimeChargeTypeEntityIRI, RDF.TYPE, carparkChargeTypeEntity);
-            model.add(carparkChargeEntityIRI, hasCarparkChargeType, dailyPricePerUnitTimeChargeTypeEntityIRI);
-            model.add(dailyPricePerUnitTimeChargeTypeEntityIRI, isChargedTypeOfCarpark, carparkChargeEntityIRI);
+            addCarparkChargeType(model, carparkChargeEntityIRI, dailyPricePerUnitTimeChargeTypeEntityIRI);
 
             JSONObject rateDetails = carparkChargesJsonObj.getJSONObject("dailyPricePerUnitTime");
 
             //For daily rate, assume it is same rate throughout the day, 7 days a week
-            model.add(carparkChargeEntityIRI, startTimeAttribute, vf.createLiteral(0f));
-            model.add(carparkChargeEntityIRI, endTimeAttribute, vf.createLiteral(24.59f));
+            addSharedStatement(model, carparkChargeEntityIRI, startTimeAttribute, dailyStartTime);
+            addSharedStatement(model, carparkChargeEntityIRI, endTimeAttribute, dailyEndTime);
 
             model = addRateDetailsToModel(carparkChargeEntityIRI, rateDetails, model);
         }
@@ -268,15 +914,118 @@ public class KBController {
         return model;
     }
 
+    //Map a parsed rate to the graph schema, as processCarparkChargesType does with its JSONObject
+    private void processCarparkCharge(IRI carparkEntityIRI, ParsedRate rate, Model model, String dayOfWeek) {
+
+        IRI carparkChargeEntityIRI = createCarparkChargeIRI(rate);
+        addSharedStatement(model, carparkChargeEntityIRI, RDF.TYPE, carparkChargeEntity);
+
+        switch (rate.getType()) {
+
+            case PRICE_PER_ENTRY:
+                addCarparkChargeType(model, carparkChargeEntityIRI, pricePerEntryChargeTypeEntity);
+                break;
+
+            case PRICE_PER_UNIT_TIME:
+                addCarparkChargeType(model, carparkChargeEntityIRI, pricePerUnitTimeChargeTypeEntityIRI);
+                break;
+
+            case DAILY_PRICE_PER_UNIT_TIME:
+                addCarparkChargeType(model, carparkChargeEntityIRI, dailyPricePerUnitTimeChargeTypeEntityIRI);
+                break;
+        }
+
+        if (rate.getType().isTimed()) {
+            if (rate.has(ParsedRate.START_TIME)) addSharedStatement(model, carparkChargeEntityIRI, startTimeAttribute, valueInterner.createLiteral(rate.getStartTime()));
+            if (rate.has(ParsedRate.END_TIME)) addSharedStatement(model, carparkChargeEntityIRI, endTimeAttribute, valueInterner.createLiteral(rate.getEndTime()));
+        }
+
+        else {
+            //For daily rate, assume it is same rate throughout the day, 7 days a week
+            addSharedStatement(model, carparkChargeEntityIRI, startTimeAttribute, dailyStartTime);
+            addSharedStatement(model, carparkChargeEntityIRI, endTimeAttribute, dailyEndTime);
+        }
+
+        if (rate.has(ParsedRate.BASE_RATE)) addSharedStatement(model, carparkChargeEntityIRI, baseRateAttribute, valueInterner.createLiteral(rate.getBaseRate()));
+        if (rate.has(ParsedRate.BASE_RATE_TIME_UNIT)) addSharedStatement(model, carparkChargeEntityIRI, baseRateTimeUnitInMinsAttribute, valueInterner.createLiteral(rate.getBaseRateTimeUnitInMins()));
+        if (rate.has(ParsedRate.SUBSEQUENT_RATE)) addSharedStatement(model, carparkChargeEntityIRI, subsequentRateAttribute, valueInterner.createLiteral(rate.getSubsequentRate()));
+        if (rate.has(ParsedRate.SUBSEQUENT_RATE_TIME_UNIT)) addSharedStatement(model, carparkChargeEntityIRI, subsequentRateTimeUnitInMinsAttribute, valueInterner.createLiteral(rate.getSubsequentRateTimeUnitInMins()));
+
+        addCarparkEntityToCharparkChargeEntityLink(model, carparkEntityIRI, carparkChargeEntityIRI, dayOfWeek);
+    }
+
+    //Type of a carpark charge, and its inverse
+    private void addCarparkChargeType(Model model, IRI carparkChargeEntityIRI, IRI chargeTypeEntityIRI) {
+
+        addSharedStatement(model, chargeTypeEntityIRI, RDF.TYPE, carparkChargeTypeEntity);
+        addSharedStatement(model, carparkChargeEntityIRI, hasCarparkChargeType, chargeTypeEntityIRI);
+        if (inverseTriples) addSharedStatement(model, chargeTypeEntityIRI, isChargedTypeOfCarpark, carparkChargeEntityIRI);
+    }
+
+    //IRI of a carpark charge, as a UUID made from the hash of its type, timing and rates. Identical charges of any carpark and day share
+    //a single node, and loading the same charges again adds nothing new
+    private IRI createCarparkChargeIRI(JSONObject carparkChargesJsonObj) {
+
+        StringBuilder chargeDetails = new StringBuilder();
+
+        for (String detailsKey : CHARGE_DETAILS_KEYS) {
+
+            if (!carparkChargesJsonObj.has(detailsKey)) {
+                continue;
+            }
+
+            JSONObject details = carparkChargesJsonObj.getJSONObject(detailsKey);
+            chargeDetails.append(detailsKey).append('{');
+
+            for (String attribute : CHARGE_ATTRIBUTES) {
+                if (details.has(attribute)) appendChargeAttribute(chargeDetails, attribute, details.getFloat(attribute));
+            }
+
+            chargeDetails.append('}');
+        }
+
+        return createCarparkChargeIRI(chargeDetails);
+    }
+
+    //IRI of a carpark charge from its parsed rate, hashing the same details in the same order as its JSONObject, so both give the same IRI
+    private IRI createCarparkChargeIRI(ParsedRate rate) {
+
+        StringBuilder chargeDetails = new StringBuilder();
+
+        if (rate.getType().isTimed()) {
+            chargeDetails.append("timing{");
+            if (rate.has(ParsedRate.START_TIME)) appendChargeAttribute(chargeDetails, "startTime", rate.getStartTime());
+            if (rate.has(ParsedRate.END_TIME)) appendChargeAttribute(chargeDetails, "endTime", rate.getEndTime());
+            chargeDetails.append('}');
+        }
+
+        chargeDetails.append(rate.getType().getKey()).append('{');
+        if (rate.has(ParsedRate.BASE_RATE)) appendChargeAttribute(chargeDetails, "baseRate", rate.getBaseRate());
+        if (rate.has(ParsedRate.BASE_RATE_TIME_UNIT)) appendChargeAttribute(chargeDetails, "baseRateTimeUnitInMins", rate.getBaseRateTimeUnitInMins());
+        if (rate.has(ParsedRate.SUBSEQUENT_RATE)) appendChargeAttribute(chargeDetails, "subsequentRate", rate.getSubsequentRate());
+        if (rate.has(ParsedRate.SUBSEQUENT_RATE_TIME_UNIT)) appendChargeAttribute(chargeDetails, "subsequentRateTimeUnitInMins", rate.getSubsequentRateTimeUnitInMins());
+        chargeDetails.append('}');
+
+        return createCarparkChargeIRI(chargeDetails);
+    }
+
+    private static void appendChargeAttribute(StringBuilder chargeDetails, String attribute, float value) {
+        chargeDetails.append(attribute).append('=').append(value).append(';');
+    }
+
+    private IRI createCarparkChargeIRI(StringBuilder chargeDetails) {
+        return vf.createIRI(base, UUID.nameUUIDFromBytes(chargeDetails.toString().getBytes(StandardCharsets.UTF_8)).toString());
+    }
+
     //Check for the existance of time attribute and add it to the model
     public Model addTimeDetailsToModel(IRI carparkChargeEntityIRI, JSONObject timingDetails, Model model) {
 
         if (timingDetails.has("startTime")) {
-            model.add(carparkChargeEntityIRI, startTimeAttribute, vf.createLiteral(timingDetails.getFloat("startTime")));
+            addSharedStatement(model, carparkChargeEntityIRI, startTimeAttribute, valueInterner.createLiteral(timingDetails.getFloat("startTime")));
         }
 
         if (timingDetails.has("endTime")) {
-            model.add(carparkChargeEntityIRI, endTimeAttribute, vf.createLiteral(timingDetails.getFloat("endTime")));
+            addSharedStatement(model, carparkChargeEntityIRI, endTimeAttribute, valueInterner.createLiteral(timingDetails.getFloat("endTime")));
         }
 
         return model;
@@ -286,19 +1035,19 @@ public class KBController {
     public Model addRateDetailsToModel(IRI carparkChargeEntityIRI, JSONObject rateDetails, Model model) {
 
         if (rateDetails.has("baseRate")) {
-            model.add(carparkChargeEntityIRI, baseRateAttribute, vf.createLiteral(rateDetails.getFloat("baseRate")));
+            addSharedStatement(model, carparkChargeEntityIRI, baseRateAttribute, valueInterner.createLiteral(rateDetails.getFloat("baseRate")));
         }
 
         if (rateDetails.has("baseRateTimeUnitInMins")) {
-            model.add(carparkChargeEntityIRI, baseRateTimeUnitInMinsAttribute, vf.createLiteral(rateDetails.getFloat("baseRateTimeUnitInMins")));
+            addSharedStatement(model, carparkChargeEntityIRI, baseRateTimeUnitInMinsAttribute, valueInterner.createLiteral(rateDetails.getFloat("baseRateTimeUnitInMins")));
         }
 
         if (rateDetails.has("subsequentRate")) {
-            model.add(carparkChargeEntityIRI, subsequentRateAttribute, vf.createLiteral(rateDetails.getFloat("subsequentRate")));
+            addSharedStatement(model, carparkChargeEntityIRI, subsequentRateAttribute, valueInterner.createLiteral(rateDetails.getFloat("subsequentRate")));
         }
 
         if (rateDetails.has("subsequentRateTimeUnitInMins")) {
-            model.add(carparkChargeEntityIRI, subsequentRateTimeUnitInMinsAttribute, vf.createLiteral(rateDetails.getFloat("subsequentRateTimeUnitInMins")));
+            addSharedStatement(model, carparkChargeEntityIRI, subsequentRateTimeUnitInMinsAttribute, valueInterner.createLiteral(rateDetails.getFloat("subsequentRateTimeUnitInMins")));
         }
 
         return model;
@@ -309,29 +1058,201 @@ public class KBController {
 
         if (dayOfWeek.compareToIgnoreCase("weekday") == 0) {
             model.add(carparkEntityIRI, hasWeekdayCarparkCharges, carparkChargeEntityIRI);
-            model.add(carparkChargeEntityIRI, isChargedByCarparkOnWeekday, carparkEntityIRI);
+            if (inverseTriples) model.add(carparkChargeEntityIRI, isChargedByCarparkOnWeekday, carparkEntityIRI);
         }
 
         else if (dayOfWeek.compareToIgnoreCase("saturday") == 0) {
             model.add(carparkEntityIRI, hasSaturdayCarparkCharges, carparkChargeEntityIRI);
-            model.add(carparkChargeEntityIRI, isChargedByCarparkOnSaturday, carparkEntityIRI);
+            if (inverseTriples) model.add(carparkChargeEntityIRI, isChargedByCarparkOnSaturday, carparkEntityIRI);
         }
 
         else if (dayOfWeek.compareToIgnoreCase("sunday") == 0) {
             model.add(carparkEntityIRI, hasSundayCarparkCharges, carparkChargeEntityIRI);
-            model.add(carparkChargeEntityIRI, isChargedByCarparkOnSunday, carparkEntityIRI);
+            if (inverseTriples) model.add(carparkChargeEntityIRI, isChargedByCarparkOnSunday, carparkEntityIRI);
         }
 
         return model;
     }
 
+    //Make the graph of this run the one queried by DataRetrieval, once everything is written to it, and drop the graphs of earlier runs in the background
+    private void publishLoadGraph() {
+
+        //Nothing was loaded into the database
+        if (rdfExporter != null) {
+            return;
+        }
+
+        //Without the result cache, nothing is written to the repository but the carparks
+        if (loadGraph == null) {
+            if (datasetVersions) LoadGraphs.newDatasetVersion(repositoryConnection);
+            return;
+        }
+
+        if (!loadGraph.equals(LoadGraphs.getCurrentGraph(repositoryConnection))) {
+            LoadGraphs.setCurrentGraph(repositoryConnection, loadGraph);
+            System.out.println("Current graph is now " + loadGraph + ".");
+        }
+
+        else {
+            LoadGraphs.newDatasetVersion(repositoryConnection);
+        }
+
+        waitForStaleGraphDropper();
+
+        List<Resource> staleGraphs = LoadGraphs.getStaleLoadGraphs(repositoryConnection);
+        if (staleGraphs.isEmpty()) {
+            return;
+        }
+
+        staleGraphDropper = new Thread(() -> {
+
+            try (RepositoryConnection dropperConnection = repositoryManager.getConnection()) {
+                for (Resource staleGraph : staleGraphs) {
+                    dropperConnection.clear(staleGraph);
+                    System.out.println("Dropped graph " + staleGraph + ".");
+                }
+            }
+
+            catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, "stale-graph-dropper");
+
+        staleGraphDropper.start();
+    }
+
+    //Drop the graph of this run when it cannot be published, once every batch sent to it is written. Nothing is rolled back without named graphs
+    private void dropLoadGraph() {
+
+        if (loadGraph == null) {
+            return;
+        }
+
+        flushBatch();
+
+        //A delta is applied to the graph which is already current. A graph the native store never saw would be taken as every graph by clear
+        if (loadGraph.equals(LoadGraphs.getCurrentGraph(repositoryConnection)) || !repositoryConnection.hasStatement(null, null, null, false, loadGraph)) {
+            return;
+        }
+
+        repositoryConnection.clear(loadGraph);
+        System.out.println("Dropped graph " + loadGraph + ", which was not fully loaded.");
+    }
+
+    private void waitForStaleGraphDropper() {
+
+        if (staleGraphDropper == null) {
+            return;
+        }
+
+        try {
+            staleGraphDropper.join();
+        }
+
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     //Write a model to the database
     public void writeToDatabase(Model model) {
-        repositoryConnection.add(model);
+        if (rdfExporter != null) {
+            rdfExporter.write(model);
+            return;
+        }
+
+        uploadFormat.add(repositoryConnection, model, loadContexts);
         System.out.println("Model added to graphdb.");
     }
 
-    private void shutDown() {
+    //Remove a carpark, its charges and the links to them from the database. The location categories and charge types are shared, so they are kept
+    public void removeCarparkFromDatabase(String carparkName) {
+
+        IRI curCarPark = createCarparkIRI(carparkName);
+
+        IRI[] chargesRelationships = {hasWeekdayCarparkCharges, hasSaturdayCarparkCharges, hasSundayCarparkCharges};
+
+        repositoryConnection.begin();
+
+        List<Resource> carparkCharges = new ArrayList<>();
+        for (IRI chargesRelationship : chargesRelationships) {
+            for (Statement statement : Iterations.asList(repositoryConnection.getStatements(curCarPark, chargesRelationship, null, loadContexts))) {
+                carparkCharges.add((Resource) statement.getObject());
+            }
+        }
+
+        repositoryConnection.remove(curCarPark, null, null, loadContexts);
+        repositoryConnection.remove((Resource) null, null, curCarPark, loadContexts);
+
+        removeUnlinkedCharges(carparkCharges);
+
+        repositoryConnection.commit();
+        System.out.println("    Removed: " + carparkName);
+
+        //Shared nodes may have been removed with the carpark, so they have to be sent again by the next carpark using them
+        if (emittedStatements != null) {
+            emittedStatements.clear();
+        }
+    }
+
+    //Remove the given charges which no carpark links to any more, in the current transaction, and return how many were removed.
+    //Identical charges are shared between carparks, so a charge is only removed once no other carpark links to it
+    private int removeUnlinkedCharges(Collection<Resource> carparkCharges) {
+
+        IRI[] chargesRelationships = {hasWeekdayCarparkCharges, hasSaturdayCarparkCharges, hasSundayCarparkCharges};
+        int chargesRemoved = 0;
+
+        for (Resource carparkCharge : carparkCharges) {
+
+            boolean stillLinked = false;
+            for (IRI chargesRelationship : chargesRelationships) {
+                stillLinked |= repositoryConnection.hasStatement(null, chargesRelationship, carparkCharge, false, loadContexts);
+            }
+
+            if (!stillLinked) {
+                repositoryConnection.remove(carparkCharge, null, null, loadContexts);
+                repositoryConnection.remove((Resource) null, null, carparkCharge, loadContexts);
+                chargesRemoved++;
+            }
+        }
+
+        return chargesRemoved;
+    }
+
+    void shutDown() {
+
+        waitForStaleGraphDropper();
+
+        if (batchFlusher != null) {
+            batchFlusher.close();
+        }
+
+        System.out.println("Value cache: " + valueInterner.getHitCount() + " hits, " + valueInterner.getMissCount() + " misses ("
+                + Math.round(valueInterner.getHitRatio() * 100) + "% of the IRIs and literals were shared).");
+
+        if (emittedStatements != null) {
+            System.out.println("Shared statements: " + emittedStatements.getEmittedCount() + " sent, " + emittedStatements.getSuppressedCount() + " suppressed as already sent.");
+        }
+
+        if (batchSizer.isAdaptive() && ingestionStripes == null) {
+            System.out.println("Batches of " + batchSizer.getTargetStatements() + " statements at the end of the load.");
+        }
+
+        if (rdfExporter != null) {
+            System.out.println(rdfExporter.getReport());
+        }
+
+        if (uploadFormat.getReport() != null) {
+            System.out.println(uploadFormat.getReport());
+        }
+
+        if (ingestionStripes != null) {
+            for (IngestionStripe stripe : ingestionStripes) {
+                System.out.println(stripe.getReport());
+                stripe.close();
+            }
+        }
+
         repositoryConnection.close();
         System.out.println("Connection Terminated.");
     }
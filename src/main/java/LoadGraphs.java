@@ -0,0 +1,119 @@
+import org.eclipse.rdf4j.common.iteration.Iterations;
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.ValueFactory;
+import org.eclipse.rdf4j.model.impl.SimpleValueFactory;
+import org.eclipse.rdf4j.query.impl.SimpleDataset;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+//Named graphs holding the ingestion runs of KBController. Each run is written into a graph of its own, and the graph queried by DataRetrieval
+//is the one named by the current graph marker, a single statement in the metadata graph. The marker is only moved once a run is fully loaded,
+//so queries never see a partly loaded run, and the graphs of earlier runs can be dropped while the current one is queried.
+//The metadata graph also holds the version of the dataset, which is changed after every ingestion, so that cached query results can be dropped
+public class LoadGraphs {
+
+    private static final ValueFactory vf = SimpleValueFactory.getInstance();
+    private static final String base = "http://cdit#";
+
+    private static final String LOAD_GRAPH_PREFIX = base + "load-";
+
+    public static final IRI METADATA_GRAPH = vf.createIRI(base, "metadata");
+    public static final IRI DATASET = vf.createIRI(base, "dataset");
+    public static final IRI CURRENT_GRAPH = vf.createIRI(base, "currentGraph");
+    public static final IRI VERSION = vf.createIRI(base, "version");
+
+    //New graph for an ingestion run
+    public static IRI createLoadGraph() {
+        return vf.createIRI(LOAD_GRAPH_PREFIX + UUID.randomUUID());
+    }
+
+    //Graph named by the current graph marker, or null when nothing was loaded into a named graph yet
+    public static IRI getCurrentGraph(RepositoryConnection connection) {
+
+        for (Statement statement : Iterations.asList(connection.getStatements(DATASET, CURRENT_GRAPH, null, false, METADATA_GRAPH))) {
+            if (statement.getObject() instanceof IRI) return (IRI) statement.getObject();
+        }
+
+        return null;
+    }
+
+    //Dataset to query the current graph with, or null to query the whole repository when nothing was loaded into a named graph yet
+    public static SimpleDataset getCurrentDataset(RepositoryConnection connection) {
+
+        IRI currentGraph = getCurrentGraph(connection);
+        if (currentGraph == null) {
+            return null;
+        }
+
+        SimpleDataset dataset = new SimpleDataset();
+        dataset.addDefaultGraph(currentGraph);
+        return dataset;
+    }
+
+    //Move the current graph marker to the given graph and give the dataset a new version, in a single transaction
+    public static void setCurrentGraph(RepositoryConnection connection, IRI graph) {
+
+        connection.begin();
+
+        try {
+            connection.remove(DATASET, CURRENT_GRAPH, null, METADATA_GRAPH);
+            connection.add(DATASET, CURRENT_GRAPH, graph, METADATA_GRAPH);
+            setNewDatasetVersion(connection);
+            connection.commit();
+        }
+
+        catch (RuntimeException e) {
+            if (connection.isActive()) connection.rollback();
+            throw e;
+        }
+    }
+
+    //Version of the dataset, or null when nothing was ingested since versions were kept
+    public static String getDatasetVersion(RepositoryConnection connection) {
+
+        for (Statement statement : Iterations.asList(connection.getStatements(DATASET, VERSION, null, false, METADATA_GRAPH))) {
+            return statement.getObject().stringValue();
+        }
+
+        return null;
+    }
+
+    //Give the dataset a new version, in a transaction of its own, after an ingestion which did not move the current graph marker
+    public static void newDatasetVersion(RepositoryConnection connection) {
+
+        connection.begin();
+
+        try {
+            setNewDatasetVersion(connection);
+            connection.commit();
+        }
+
+        catch (RuntimeException e) {
+            if (connection.isActive()) connection.rollback();
+            throw e;
+        }
+    }
+
+    private static void setNewDatasetVersion(RepositoryConnection connection) {
+        connection.remove(DATASET, VERSION, null, METADATA_GRAPH);
+        connection.add(DATASET, VERSION, vf.createLiteral(UUID.randomUUID().toString()), METADATA_GRAPH);
+    }
+
+    //Graphs of ingestion runs other than the current one, which are no longer queried
+    public static List<Resource> getStaleLoadGraphs(RepositoryConnection connection) {
+
+        IRI currentGraph = getCurrentGraph(connection);
+        List<Resource> staleGraphs = new ArrayList<>();
+
+        for (Resource graph : Iterations.asList(connection.getContextIDs())) {
+            if (graph.stringValue().startsWith(LOAD_GRAPH_PREFIX) && !graph.equals(currentGraph)) staleGraphs.add(graph);
+        }
+
+        return staleGraphs;
+    }
+}
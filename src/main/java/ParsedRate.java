@@ -0,0 +1,148 @@
+import org.json.JSONObject;
+
+//Immutable result of parsing a single rate description. A single instance is shared by every carpark with the same description.
+//The values are primitive floats, and which of them are present is kept in bit flags, so absent values are 0 rather than a marker value
+public class ParsedRate {
+
+    //Bit flags of the values which are present
+    public static final int START_TIME = 1;
+    public static final int END_TIME = 1 << 1;
+    public static final int BASE_RATE = 1 << 2;
+    public static final int BASE_RATE_TIME_UNIT = 1 << 3;
+    public static final int SUBSEQUENT_RATE = 1 << 4;
+    public static final int SUBSEQUENT_RATE_TIME_UNIT = 1 << 5;
+
+    public static final int TIMING = START_TIME | END_TIME;
+    public static final int BASE = BASE_RATE | BASE_RATE_TIME_UNIT;
+    public static final int SUBSEQUENT = SUBSEQUENT_RATE | SUBSEQUENT_RATE_TIME_UNIT;
+
+    //Per entry charges have no time unit, which is given as -1
+    public static final float NOT_APPLICABLE = -1f;
+
+    //Result for descriptions which are not a recognised rate
+    public static final ParsedRate NO_RATE = new ParsedRate(null, 0, 0f, 0f, 0f, 0f, 0f, 0f);
+
+    private final ChargeType type;
+    private final int presentValues;
+    private final float startTime;
+    private final float endTime;
+    private final float baseRate;
+    private final float baseRateTimeUnitInMins;
+    private final float subsequentRate;
+    private final float subsequentRateTimeUnitInMins;
+
+    //Values which are not in presentValues are stored as 0
+    public ParsedRate(ChargeType type, int presentValues, float startTime, float endTime, float baseRate, float baseRateTimeUnitInMins, float subsequentRate, float subsequentRateTimeUnitInMins) {
+        this.type = type;
+        this.presentValues = presentValues;
+        this.startTime = valueIfPresent(presentValues, START_TIME, startTime);
+        this.endTime = valueIfPresent(presentValues, END_TIME, endTime);
+        this.baseRate = valueIfPresent(presentValues, BASE_RATE, baseRate);
+        this.baseRateTimeUnitInMins = valueIfPresent(presentValues, BASE_RATE_TIME_UNIT, baseRateTimeUnitInMins);
+        this.subsequentRate = valueIfPresent(presentValues, SUBSEQUENT_RATE, subsequentRate);
+        this.subsequentRateTimeUnitInMins = valueIfPresent(presentValues, SUBSEQUENT_RATE_TIME_UNIT, subsequentRateTimeUnitInMins);
+    }
+
+    private static float valueIfPresent(int presentValues, int value, float f) {
+        return ((presentValues & value) != 0) ? f : 0f;
+    }
+
+    //Copy the rate last parsed by the tokenizer
+    public static ParsedRate from(RateDescriptionTokenizer tokenizer) {
+        return new ParsedRate(tokenizer.getType(), tokenizer.getPresentValues(), tokenizer.getStartTime(), tokenizer.getEndTime(), tokenizer.getBaseRate(),
+                tokenizer.getBaseRateTimeUnitInMins(), tokenizer.getSubsequentRate(), tokenizer.getSubsequentRateTimeUnitInMins());
+    }
+
+    //Construct the JSONObject of the rate, as written to the cleaned output file. Absent values are left out
+    public JSONObject toJSONObject() {
+
+        JSONObject startEndTimeJsonObj = new JSONObject();
+        if (has(START_TIME)) startEndTimeJsonObj.put("startTime", startTime);
+        if (has(END_TIME)) startEndTimeJsonObj.put("endTime", endTime);
+
+        JSONObject pricePerUnitTimeJsonObj = new JSONObject();
+        if (has(BASE_RATE)) pricePerUnitTimeJsonObj.put("baseRate", baseRate);
+        if (has(BASE_RATE_TIME_UNIT)) pricePerUnitTimeJsonObj.put("baseRateTimeUnitInMins", baseRateTimeUnitInMins);
+        if (has(SUBSEQUENT_RATE)) pricePerUnitTimeJsonObj.put("subsequentRate", subsequentRate);
+        if (has(SUBSEQUENT_RATE_TIME_UNIT)) pricePerUnitTimeJsonObj.put("subsequentRateTimeUnitInMins", subsequentRateTimeUnitInMins);
+
+        JSONObject returnJsonObject = new JSONObject();
+        if (type.isTimed()) returnJsonObject.put("timing", startEndTimeJsonObj);
+        returnJsonObject.put(type.getKey(), pricePerUnitTimeJsonObj);
+
+        return returnJsonObject;
+    }
+
+    public boolean isRate() {
+        return type != null;
+    }
+
+    //Check if the value with the given bit flag is present
+    public boolean has(int value) {
+        return (presentValues & value) != 0;
+    }
+
+    public ChargeType getType() {
+        return type;
+    }
+
+    public int getPresentValues() {
+        return presentValues;
+    }
+
+    public float getStartTime() {
+        return startTime;
+    }
+
+    public float getEndTime() {
+        return endTime;
+    }
+
+    public float getBaseRate() {
+        return baseRate;
+    }
+
+    public float getBaseRateTimeUnitInMins() {
+        return baseRateTimeUnitInMins;
+    }
+
+    public float getSubsequentRate() {
+        return subsequentRate;
+    }
+
+    public float getSubsequentRateTimeUnitInMins() {
+        return subsequentRateTimeUnitInMins;
+    }
+
+    //Two rates are equal when they give the same JSONObject
+    @Override
+    public boolean equals(Object o) {
+
+        if (this == o) {
+            return true;
+        }
+
+        if (!(o instanceof ParsedRate)) {
+            return false;
+        }
+
+        ParsedRate other = (ParsedRate) o;
+        return type == other.type && presentValues == other.presentValues && startTime == other.startTime && endTime == other.endTime && baseRate == other.baseRate
+                && baseRateTimeUnitInMins == other.baseRateTimeUnitInMins && subsequentRate == other.subsequentRate && subsequentRateTimeUnitInMins == other.subsequentRateTimeUnitInMins;
+    }
+
+    @Override
+    public int hashCode() {
+
+        int hash = (type != null) ? type.hashCode() : 0;
+        hash = 31 * hash + presentValues;
+        hash = 31 * hash + Float.floatToIntBits(startTime);
+        hash = 31 * hash + Float.floatToIntBits(endTime);
+        hash = 31 * hash + Float.floatToIntBits(baseRate);
+        hash = 31 * hash + Float.floatToIntBits(baseRateTimeUnitInMins);
+        hash = 31 * hash + Float.floatToIntBits(subsequentRate);
+        hash = 31 * hash + Float.floatToIntBits(subsequentRateTimeUnitInMins);
+
+        return hash;
+    }
+}
@@ -0,0 +1,45 @@
+import org.eclipse.rdf4j.query.TupleQuery;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.util.HashMap;
+import java.util.Map;
+
+//Named SPARQL queries of DataRetrieval. Each query is prepared once on the connection, the first time it is used, and then evaluated again
+//with other values bound to its parameters (setBinding), instead of building and parsing a new query string for every call.
+//The values are bound as RDF values, never spliced into the query text. Not thread safe, as a prepared query holds its bindings
+public class PreparedQueries {
+
+    private final RepositoryConnection connection;
+
+    private final Map<String, String> queryStrings = new HashMap<>();
+    private final Map<String, TupleQuery> preparedQueries = new HashMap<>();
+
+    public PreparedQueries(RepositoryConnection connection) {
+        this.connection = connection;
+    }
+
+    public void register(String name, String queryString) {
+        queryStrings.put(name, queryString);
+        preparedQueries.remove(name);
+    }
+
+    //Prepared query of the given name, without any of the bindings of its last use
+    public TupleQuery get(String name) {
+
+        TupleQuery query = preparedQueries.get(name);
+
+        if (query == null) {
+
+            String queryString = queryStrings.get(name);
+            if (queryString == null) {
+                throw new IllegalArgumentException("No query named " + name);
+            }
+
+            query = connection.prepareTupleQuery(queryString);
+            preparedQueries.put(name, query);
+        }
+
+        query.clearBindings();
+        return query;
+    }
+}
@@ -0,0 +1,112 @@
+import org.eclipse.rdf4j.query.Binding;
+import org.eclipse.rdf4j.query.BindingSet;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+//Results of the DataRetrieval queries, keyed by the name of the query and the values bound to its parameters, so a repeated query is answered
+//without going to graphDB. At most maxEntries results are kept, the least recently used being dropped first, and each for at most ttlMillis.
+//All the results are dropped when the dataset version (see LoadGraphs), which KBController changes after every ingestion, is no longer the one
+//they were read from. The version is read from graphDB at most once every versionCheckMillis, so that a hit costs no round trip
+public class QueryResultCache {
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long versionCheckNanos;
+
+    private final Map<String, CachedResult> results;
+
+    private String datasetVersion;
+    private long versionCheckedAt;
+    private boolean versionChecked = false;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    private static class CachedResult {
+
+        private final List<BindingSet> solutions;
+        private final long cachedAt;
+
+        private CachedResult(List<BindingSet> solutions, long cachedAt) {
+            this.solutions = solutions;
+            this.cachedAt = cachedAt;
+        }
+    }
+
+    public QueryResultCache(int maxEntries, long ttlMillis, long versionCheckMillis) {
+
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlMillis * 1000000;
+        this.versionCheckNanos = versionCheckMillis * 1000000;
+
+        //Access order, so the eldest entry is the least recently used one
+        results = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > QueryResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    //Key of a query with the given bindings, the same whatever order the parameters were bound in
+    public static String createKey(String queryName, BindingSet bindings) {
+
+        Map<String, String> sortedBindings = new TreeMap<>();
+        for (Binding binding : bindings) {
+            sortedBindings.put(binding.getName(), binding.getValue().toString());
+        }
+
+        return queryName + sortedBindings;
+    }
+
+    //Drop all the results if the dataset version changed since it was last read, reading it again when versionCheckMillis have passed
+    public synchronized void checkDatasetVersion(RepositoryConnection connection) {
+
+        long now = System.nanoTime();
+
+        if (versionChecked && now - versionCheckedAt < versionCheckNanos) {
+            return;
+        }
+
+        String currentVersion = LoadGraphs.getDatasetVersion(connection);
+
+        if (versionChecked && !(currentVersion == null ? datasetVersion == null : currentVersion.equals(datasetVersion))) {
+            results.clear();
+        }
+
+        datasetVersion = currentVersion;
+        versionCheckedAt = now;
+        versionChecked = true;
+    }
+
+    //Cached solutions of the query, or null when they are not cached or have expired
+    public synchronized List<BindingSet> get(String key) {
+
+        CachedResult result = results.get(key);
+
+        if (result != null && System.nanoTime() - result.cachedAt >= ttlNanos) {
+            results.remove(key);
+            result = null;
+        }
+
+        if (result == null) {
+            misses++;
+            return null;
+        }
+
+        hits++;
+        return result.solutions;
+    }
+
+    public synchronized void put(String key, List<BindingSet> solutions) {
+        results.put(key, new CachedResult(solutions, System.nanoTime()));
+    }
+
+    public synchronized String getReport() {
+        return "Query result cache: " + hits + " hits, " + misses + " misses, " + results.size() + " results cached.";
+    }
+}
@@ -0,0 +1,109 @@
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Statement;
+import org.eclipse.rdf4j.model.impl.TreeModel;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.RDFWriter;
+import org.eclipse.rdf4j.rio.Rio;
+
+import java.io.*;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+//Writes the batches of KBController to RDF files instead of the database, to be loaded offline with graphDB's preload or loadrdf tools
+//(or any RDF4J bulk import), which are much faster than inserting batch by batch. The statements are collected into chunks of at most
+//chunkStatements statements, and each chunk is written sorted (by subject, predicate and object) to a file of its own, optionally gzipped.
+//Only a chunk is held in memory, so the size of the chunks bounds the memory used. Not thread safe: the batches are written one at a time
+public class RDFExporter {
+
+    private static final String FILE_PREFIX = "carpark-rates-";
+    //Numbered with at least 5 digits, more from the 100000th file on
+    private static final Pattern EXPORTED_FILE = Pattern.compile(Pattern.quote(FILE_PREFIX) + "\\d{5,}\\.[a-z]+(\\.gz)?");
+
+    private final File directory;
+    private final RDFFormat format;
+    private final boolean gzip;
+    private final int chunkStatements;
+
+    private Model chunk = new TreeModel();
+
+    private int filesWritten = 0;
+    private long statementsWritten = 0;
+    private long bytesWritten = 0;
+
+    public RDFExporter(String directory, RDFFormat format, boolean gzip, int chunkStatements) throws IOException {
+
+        this.directory = new File(directory);
+        this.format = format;
+        this.gzip = gzip;
+        this.chunkStatements = chunkStatements;
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Could not create the export directory " + directory);
+        }
+
+        //The files of an earlier export, in any format, would otherwise be loaded with the new ones
+        File[] earlierFiles = this.directory.listFiles((dir, name) -> EXPORTED_FILE.matcher(name).matches());
+        if (earlierFiles != null) {
+            for (File earlierFile : earlierFiles) {
+                if (!earlierFile.delete()) throw new IOException("Could not delete the earlier export " + earlierFile);
+            }
+        }
+    }
+
+    //Add the statements of a batch, writing out the chunk each time it is full
+    public void write(Model batch) {
+
+        for (Statement statement : batch) {
+
+            chunk.add(statement);
+
+            if (chunk.size() >= chunkStatements) {
+                writeChunk();
+            }
+        }
+    }
+
+    //Write what is left in the current chunk
+    public void flush() {
+
+        if (!chunk.isEmpty()) {
+            writeChunk();
+        }
+    }
+
+    private void writeChunk() {
+
+        File chunkFile = new File(directory, String.format("%s%05d.%s%s", FILE_PREFIX, filesWritten + 1, format.getDefaultFileExtension(), gzip ? ".gz" : ""));
+
+        try (OutputStream out = new FileOutputStream(chunkFile)) {
+
+            OutputStream fileOut = new BufferedOutputStream(gzip ? new GZIPOutputStream(out, 1 << 16) : out, 1 << 16);
+
+            RDFWriter writer = Rio.createWriter(format, fileOut);
+            writer.startRDF();
+
+            for (Statement statement : chunk) {
+                writer.handleStatement(statement);
+            }
+
+            writer.endRDF();
+            fileOut.close();
+        }
+
+        catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + chunkFile, e);
+        }
+
+        filesWritten++;
+        statementsWritten += chunk.size();
+        bytesWritten += chunkFile.length();
+
+        System.out.println("Exported " + chunk.size() + " statements to " + chunkFile + ".");
+
+        chunk = new TreeModel();
+    }
+
+    public String getReport() {
+        return "Export: " + statementsWritten + " statements in " + filesWritten + " files (" + bytesWritten + " bytes) in " + directory + ".";
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+//Bounded, thread safe cache of parsed rate descriptions, keyed by the description.
+//The entries are spread over segments which each drop their least recently used entry when full, so that cleaning threads rarely wait on each other.
+public class RateDescriptionCache {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment[] segments = new Segment[SEGMENT_COUNT];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public RateDescriptionCache(int maximumSize) {
+
+        int segmentSize = Math.max(1, (maximumSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment(segmentSize);
+        }
+    }
+
+    //Return the cached rate for the description, or parse and cache it. The description is parsed outside of the lock
+    public ParsedRate get(String description, Function<String, ParsedRate> parser) {
+
+        Segment segment = segments[(description.hashCode() & 0x7fffffff) % SEGMENT_COUNT];
+        ParsedRate rate;
+
+        synchronized (segment) {
+            rate = segment.get(description);
+        }
+
+        if (rate != null) {
+            hits.increment();
+            return rate;
+        }
+
+        misses.increment();
+        rate = parser.apply(description);
+
+        synchronized (segment) {
+            segment.put(description, rate);
+        }
+
+        return rate;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    //Share of the lookups answered from the cache, i.e. the dedup ratio of the rate descriptions
+    public double getHitRatio() {
+
+        long lookups = getHitCount() + getMissCount();
+
+        return lookups == 0 ? 0d : (double) getHitCount() / lookups;
+    }
+
+    public int size() {
+
+        int size = 0;
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    //Access ordered map which removes its eldest entry once it grows past its capacity
+    private static class Segment extends LinkedHashMap<String, ParsedRate> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ParsedRate> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,835 @@
+import java.util.Arrays;
+
+//Single pass tokenizer for the rate descriptions in carpark-rates.csv.
+//The description is scanned once into word offsets, and each of the rate forms (time window, per entry, 1st N hrs / sub. N mins
+//and daily) is then recognised by walking the words, instead of splitting and replacing the string for every rule.
+//An instance keeps its buffers between calls and is therefore not thread safe.
+public class RateDescriptionTokenizer {
+
+    private static final char NBSP = '\u00A0';
+    private static final String HALF = "\u00BD";
+
+    //Durations standardized to minutes, matched in this order
+    private static final String[][] DURATION_PHRASES = {
+            {"1" + HALF + "hrs"}, {"1" + HALF, "hrs"}, {"1" + HALF + "hr"},
+            {"2" + HALF, "hrs"}, {"2" + HALF + "hrs"},
+            {HALF, "hour"}, {HALF, "hr"}, {"1/2", "hr"},
+            {"2hrs"}, {"2-hrs"}, {"2", "hrs"}, {"2", "hr"},
+            {"3hrs"}, {"1hr"}
+    };
+    private static final float[] DURATION_PHRASE_MINS = {90f, 90f, 90f, 150f, 150f, 30f, 30f, 30f, 120f, 120f, 120f, 120f, 180f, 60f};
+
+    //Durations which are only standardized after "per", "sub." and "1st"
+    private static final String[] HOUR = {"hr"};
+    private static final String[] MINUTE = {"min"};
+    private static final String[] THREE_HOURS = {"3", "hrs"};
+
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private String input;
+    private int length;
+
+    //Word offsets into the input
+    private int[] wordStart = new int[32];
+    private int[] wordEnd = new int[32];
+    private int wordCount;
+
+    //Result of the duration phrase last matched by matchDuration
+    private int phraseWords;
+    private int phraseTailStart;
+    private float phraseMins;
+
+    //Parsed rate, with the bit flags of ParsedRate for the values which are present
+    private ChargeType type;
+    private int presentValues;
+    private float startTime, endTime, baseRate, baseRateTimeUnitInMins, subsequentRate, subsequentRateTimeUnitInMins;
+
+    //Base rate, base rate time unit, subsequent rate and subsequent rate time unit found by parseAmountPerTimeWithSub
+    private final float[] subAttributes = new float[4];
+
+    //Time window parsed by parseTimeWindow
+    private float windowStart, windowEnd;
+
+    //Tokenize and parse a single rate description. Returns false if it does not match any of the known rate forms
+    public boolean tokenize(String inputRateString) {
+
+        type = null;
+
+        if (inputRateString.length() < 2) {
+            return false;
+        }
+
+        input = inputRateString;
+        length = inputRateString.length();
+        scanWords();
+
+        int timeEnd = input.indexOf(':');
+
+        if (timeEnd >= 0 && hasContentAfter(timeEnd)) {
+            int chargesEnd = input.indexOf(':', timeEnd + 1);
+            return parseTimedRate(timeEnd, timeEnd + 1, chargesEnd < 0 ? length : chargesEnd);
+        }
+
+        return parseUntimedRate();
+    }
+
+    public ChargeType getType() {
+        return type;
+    }
+
+    public int getPresentValues() {
+        return presentValues;
+    }
+
+    public float getStartTime() {
+        return startTime;
+    }
+
+    public float getEndTime() {
+        return endTime;
+    }
+
+    public float getBaseRate() {
+        return baseRate;
+    }
+
+    public float getBaseRateTimeUnitInMins() {
+        return baseRateTimeUnitInMins;
+    }
+
+    public float getSubsequentRate() {
+        return subsequentRate;
+    }
+
+    public float getSubsequentRateTimeUnitInMins() {
+        return subsequentRateTimeUnitInMins;
+    }
+
+    //Rates with a time constraint in front of the ":" e.g. "7am-7pm: $1.50 per hr", "Aft 5pm: $1 per entry", "Daily: $1.20 per hr"
+    private boolean parseTimedRate(int timeEnd, int chargesStart, int chargesEnd) {
+
+        int timeStart = skipTrimmable(0, timeEnd);
+
+        if (input.regionMatches(true, timeStart, "daily", 0, 5)) { //If daily rate is present, assume that the price is fixed for the entire day
+
+            if (indexOf("sub", chargesStart, chargesEnd, false) < 0) {
+                return parseAmountPerTime(chargesStart, chargesEnd, 0, 0f, 0f, ChargeType.DAILY_PRICE_PER_UNIT_TIME);
+            }
+
+            return parseAmountPerTimeWithSub(chargesStart, chargesEnd, true, 0, 0f, 0f, ChargeType.DAILY_PRICE_PER_UNIT_TIME);
+        }
+
+        else if (input.regionMatches(true, timeStart, "aft", 0, 3) && indexOf("per entry", chargesStart, chargesEnd, true) >= 0) { //Aft 5pm: $1 per entry
+
+            float timeAfter = parseTimeAfter(0, timeEnd, true);
+            float perEntryRate = lastAmount(chargesStart, chargesEnd);
+
+            if (Float.isNaN(timeAfter) || Float.isNaN(perEntryRate)) {
+                return false;
+            }
+
+            return setRate(ChargeType.PRICE_PER_ENTRY, ParsedRate.START_TIME | ParsedRate.BASE, timeAfter + 0.01f, 0f, perEntryRate, ParsedRate.NOT_APPLICABLE, 0f, 0f); //After 5pm = 5.01pm
+        }
+
+        else if ((indexOf("am", 0, timeEnd, true) >= 0 || indexOf("pm", 0, timeEnd, true) >= 0) && timeEnd <= 15) { //15 character because longest length is 12.00am-12.00pm
+
+            if (!parseTimeWindow(0, timeEnd)) {
+                return false;
+            }
+
+            boolean hasSubCharges = indexOf("sub", chargesStart, chargesEnd, false) >= 0;
+
+            if (count('$', chargesStart, chargesEnd) == 1 && !hasSubCharges) { //If it is a simple $X per X hr/min rate
+                return parseAmountPerTime(chargesStart, chargesEnd, ParsedRate.TIMING, windowStart, windowEnd, ChargeType.PRICE_PER_UNIT_TIME);
+            }
+
+            else if (hasSubCharges) { //$1.40 per 1st hr; $0.80 per sub 30 mins
+                return parseAmountPerTimeWithSub(chargesStart, chargesEnd, false, ParsedRate.TIMING, windowStart, windowEnd, ChargeType.PRICE_PER_UNIT_TIME);
+            }
+        }
+
+        return false;
+    }
+
+    //Rates without the ":" delimiter, which may or may not have a time constraint
+    private boolean parseUntimedRate() {
+
+        if (input.indexOf("am ") < 0 && input.indexOf("pm ") < 0 && length > 2) { //No time elements (e.g. AM/PM) in the description
+
+            if (input.indexOf("per entry") >= 0) {
+
+                float perEntryRate = lastAmount(0, length);
+
+                return !Float.isNaN(perEntryRate) && setRate(ChargeType.PRICE_PER_ENTRY, ParsedRate.TIMING | ParsedRate.BASE, 0f, 23.59f, perEntryRate, ParsedRate.NOT_APPLICABLE, 0f, 0f);
+            }
+        }
+
+        else if (input.indexOf(" - ") >= 0) { //6.30am to 6.30pm - $2 per hour (Its delimited by - instead of :
+
+            int timeEnd = input.indexOf(" - ");
+            int chargesStart = timeEnd + 3;
+            int chargesEnd = input.indexOf(" - ", chargesStart);
+
+            if (chargesEnd < 0) {
+                chargesEnd = length;
+            }
+
+            if (indexOf("am", 0, timeEnd, false) >= 0 && indexOf("pm", 0, timeEnd, false) >= 0) {
+
+                return indexOf("sub", chargesStart, chargesEnd, false) >= 0 && parseTimeWindow(0, timeEnd)
+                        && parseAmountPerTimeWithSub(chargesStart, chargesEnd, false, ParsedRate.TIMING, windowStart, windowEnd, ChargeType.PRICE_PER_UNIT_TIME);
+            }
+
+            else if (indexOf("After", 0, timeEnd, false) >= 0) { //After 4pm - $4 flat
+
+                float timeAfter = parseTimeAfter(0, timeEnd, false);
+                float perEntryRate = flatAmount(chargesStart, chargesEnd);
+
+                return !Float.isNaN(timeAfter) && !Float.isNaN(perEntryRate) && setRate(ChargeType.PRICE_PER_ENTRY, ParsedRate.START_TIME | ParsedRate.BASE, timeAfter, 0f, perEntryRate, ParsedRate.NOT_APPLICABLE, 0f, 0f);
+            }
+        }
+
+        else if (input.indexOf("sub") >= 0) {
+            return parseAmountPerTimeWithSub(0, length, false, ParsedRate.TIMING, 0f, 23.59f, ChargeType.PRICE_PER_UNIT_TIME);
+        }
+
+        return false;
+    }
+
+    //Process parking rate in the form of "$1.50 per 30 mins". "/" and "for" are read as "per"
+    private boolean parseAmountPerTime(int from, int to, int timing, float start, float end, ChargeType rateType) {
+
+        int first = firstWord(from);
+        int last = endWord(to);
+        int per = first;
+
+        while (per < last && !isPer(per, true)) {
+            per++;
+        }
+
+        //Only a single amount is allowed before the first "per"
+        if (per == last || !isAmount(first)) {
+            return false;
+        }
+
+        float price = amountOf(first, per);
+
+        int unitEnd = per + 1;
+        while (unitEnd < last && !isPer(unitEnd, true)) {
+            unitEnd++;
+        }
+
+        float rateBaseAmount = durationOf(per + 1, unitEnd);
+
+        if (Float.isNaN(price) || Float.isNaN(rateBaseAmount)) {
+            return false;
+        }
+
+        return setRate(rateType, timing | ParsedRate.BASE, start, end, price, rateBaseAmount, 0f, 0f);
+    }
+
+    //Process parking rate in the form of "$1.40 per 1st hr; $0.80 per sub 30 mins"
+    //Looks for pattern of $XXX --> 1st hour --> $XXX --> "sub" --> X hr
+    private boolean parseAmountPerTimeWithSub(int from, int to, boolean forIsPer, int timing, float start, float end, ChargeType rateType) {
+
+        int first = firstWord(from);
+        int last = endWord(to);
+
+        int check = 0;
+        float[] attributes = subAttributes;
+
+        int i = first;
+        while (i < last) {
+
+            if ((check == 0 || check == 2) && isAmount(i)) {
+                attributes[check++] = amountAt(i);
+                i++;
+                continue;
+            }
+
+            else if (check == 1 && wordStartsWith(i, "1st")) { //Extract first ? hours
+
+                if (i < last - 1) {
+                    attributes[check++] = firstUnitAt(i + 1, forIsPer);
+                    i += 1 + width(i + 1, forIsPer);
+                    continue;
+                }
+            }
+
+            else if (check == 3 && input.regionMatches(true, wordStart[i], "sub", 0, 3)) { //Extract subsequent ? minutes
+
+                if (i == last - 1) {
+                    return false;
+                }
+
+                attributes[check++] = subsequentUnitAt(i + 1, forIsPer);
+                break;
+            }
+
+            else if (check == 3 && matchDuration(i, forIsPer) && phraseTailStart == wordEnd[i + phraseWords - 1]) { //If the word "sub" comes after
+                attributes[check++] = phraseMins;
+                break;
+            }
+
+            else if (check == 3 && wordEndsWithIgnoreCase(i, "mins")) {
+                attributes[check++] = digitsOf(i);
+                break;
+            }
+
+            i += width(i, forIsPer);
+        }
+
+        if (check != 4 || Float.isNaN(attributes[0]) || Float.isNaN(attributes[1]) || Float.isNaN(attributes[2]) || Float.isNaN(attributes[3])) {
+            return false;
+        }
+
+        return setRate(rateType, timing | ParsedRate.BASE | ParsedRate.SUBSEQUENT, start, end, attributes[0], attributes[1], attributes[2], attributes[3]);
+    }
+
+    //Time unit following "1st", which must be given in hr or mins
+    private float firstUnitAt(int i, boolean forIsPer) {
+
+        if (matchDuration(i, forIsPer)) {
+            int tailEnd = trimUnitPunctuation(phraseTailStart, wordEnd[i + phraseWords - 1]);
+            return (tailEnd == phraseTailStart || (tailEnd == phraseTailStart + 1 && input.charAt(phraseTailStart) == '.')) ? phraseMins : Float.NaN;
+        }
+
+        int end = trimUnitPunctuation(wordStart[i], wordEnd[i]);
+
+        if (indexOf("mins", wordStart[i], end, false) >= 0) {
+            return parseMinutes(wordStart[i], end);
+        }
+
+        else if (end - wordStart[i] == 2 && input.regionMatches(true, wordStart[i], "hr", 0, 2)) { //If is per 1 hour, convert to 60 mins
+            return 60f;
+        }
+
+        return Float.NaN;
+    }
+
+    //Time unit following "sub"
+    private float subsequentUnitAt(int i, boolean forIsPer) {
+
+        if (matchDuration(i, forIsPer)) {
+            return phraseMins;
+        }
+
+        else if (wordEquals(i, "hr", true)) { //If is per 1 hour, convert to 60 mins
+            return 60f;
+        }
+
+        return digitsOf(i);
+    }
+
+    //Process time in the form of "12am-12pm" or "7am to 7pm"
+    private boolean parseTimeWindow(int from, int to) {
+
+        from = skipWhitespace(from, to);
+        while (to > from && isWhitespace(input.charAt(to - 1))) {
+            to--;
+        }
+
+        int delimiter = -1;
+        int delimiterLength = 0;
+
+        for (int i = from; i < to && delimiter < 0; i++) {
+            if (input.charAt(i) == '-') {
+                delimiter = i;
+                delimiterLength = 1;
+            }
+            else if (input.startsWith(" to ", i) && i + 4 <= to) {
+                delimiter = i;
+                delimiterLength = 4;
+            }
+        }
+
+        if (delimiter < 0) {
+            return false;
+        }
+
+        int endTimeStart = delimiter + delimiterLength;
+        int endTimeEnd = endTimeStart;
+
+        while (endTimeEnd < to && input.charAt(endTimeEnd) != '-' && !(input.startsWith(" to ", endTimeEnd) && endTimeEnd + 4 <= to)) {
+            endTimeEnd++;
+        }
+
+        //Nothing but delimiters after the first one, same as a time without an end
+        if (endTimeEnd == endTimeStart && !hasContentOtherThan(endTimeStart, to, '-')) {
+            return false;
+        }
+
+        windowStart = parseClock(from, delimiter);
+        windowEnd = parseClock(endTimeStart, endTimeEnd);
+
+        return !Float.isNaN(windowStart) && !Float.isNaN(windowEnd);
+    }
+
+    //Process a single time e.g. "7.30pm" to its decimal 24 hour value. Times without am/pm are taken as 0
+    private float parseClock(int from, int to) {
+
+        boolean am = indexOf("am", from, to, false) >= 0;
+        boolean pm = !am && indexOf("pm", from, to, false) >= 0;
+
+        if (!am && !pm) {
+            return 0f;
+        }
+
+        int start = skipWhitespace(from, to);
+        int numberEnd = skipNumber(start, to);
+        int marker = skipWhitespace(numberEnd, to);
+
+        if (!input.startsWith(am ? "am" : "pm", marker) || marker + 2 > to || skipWhitespace(marker + 2, to) != to) {
+            return Float.NaN;
+        }
+
+        float time = parseNumber(start, numberEnd);
+        return pm ? time + 12.0f : time;
+    }
+
+    //Process time in the form of "After 5pm" or "Aft 5pm"
+    private float parseTimeAfter(int from, int to, boolean convertPm) {
+
+        int i = skipTrimmable(from, to);
+
+        if (input.startsWith("After", i)) {
+            i += 5;
+        }
+        else if (input.startsWith("Aft", i)) {
+            i += 3;
+        }
+
+        int start = skipTrimmable(i, to);
+        int numberEnd = skipNumber(start, to);
+        int marker = skipTrimmable(numberEnd, to);
+        boolean pm = false;
+
+        if (input.startsWith("am", marker) && marker + 2 <= to) {
+            marker += 2;
+        }
+        else if (input.startsWith("pm", marker) && marker + 2 <= to) {
+            marker += 2;
+            pm = true;
+        }
+
+        if (skipTrimmable(marker, to) != to) {
+            return Float.NaN;
+        }
+
+        float time = parseNumber(start, numberEnd);
+        return (pm && convertPm) ? time + 12f : time; //Convert to 24 hour clock
+    }
+
+    //The last amount in the description, e.g. the $6 in "$1.65 per hr (Max. of $6.00 per entry)"
+    private float lastAmount(int from, int to) {
+
+        float amount = 0f;
+
+        for (int i = firstWord(from); i < endWord(to); i++) {
+            if (input.charAt(wordStart[i]) == '$') {
+                amount = amountAt(i);
+            }
+        }
+
+        return amount;
+    }
+
+    //Amount in the form of "$4" or "$4 flat"
+    private float flatAmount(int from, int to) {
+
+        int first = firstWord(from);
+        int last = endWord(to);
+
+        if (last - first > 1 && wordEquals(last - 1, "flat", false)) {
+            last--;
+        }
+
+        return (first < last && input.charAt(wordStart[first]) == '$') ? amountOf(first, last) : Float.NaN;
+    }
+
+    //Amount which makes up the whole of the given words, written as "$1.50" or "$ 1.50"
+    private float amountOf(int from, int to) {
+
+        if (to - from == 1) {
+            return amountAt(from);
+        }
+
+        else if (to - from == 2 && wordEquals(from, "$", false)) {
+            return parseNumber(wordStart[from + 1], wordEnd[from + 1]);
+        }
+
+        return Float.NaN;
+    }
+
+    //Duration which makes up the whole of the given words e.g. "30 mins", "½ hr", "hr"
+    private float durationOf(int from, int to) {
+
+        if (from >= to) {
+            return Float.NaN;
+        }
+
+        if (matchDuration(from, true)) {
+            return (from + phraseWords == to && phraseTailStart == wordEnd[to - 1]) ? phraseMins : Float.NaN;
+        }
+
+        boolean minAtEnd = to == wordCount && input.endsWith("min");
+        int unit = to - 1;
+
+        if (!(wordEndsWith(unit, "mins") || (minAtEnd && wordEndsWith(unit, "min")))) {
+            return Float.NaN;
+        }
+
+        int unitLength = wordEndsWith(unit, "mins") ? 4 : 3;
+
+        if (to - from == 1) {
+            return parseNumber(wordStart[from], wordEnd[from] - unitLength);
+        }
+
+        else if (to - from == 2 && wordEnd[unit] - wordStart[unit] == unitLength) {
+            return parseNumber(wordStart[from], wordEnd[from]);
+        }
+
+        return Float.NaN;
+    }
+
+    //Match one of the standard durations starting at the given word. The result is left in phraseMins, phraseWords and phraseTailStart
+    private boolean matchDuration(int i, boolean forIsPer) {
+
+        if (i >= wordCount) {
+            return false;
+        }
+
+        for (int p = 0; p < DURATION_PHRASES.length; p++) {
+            if (matchPhrase(i, DURATION_PHRASES[p], DURATION_PHRASE_MINS[p])) {
+                return true;
+            }
+        }
+
+        if (i > 0 && (isPer(i - 1, forIsPer) || wordEquals(i - 1, "sub.", false))) { //per hr, per min, sub. hr, sub. min
+            return matchPhrase(i, HOUR, 60f) || matchPhrase(i, MINUTE, 1f);
+        }
+
+        if (i > 0 && wordEquals(i - 1, "1st", false)) {
+            return matchPhrase(i, THREE_HOURS, 180f);
+        }
+
+        return false;
+    }
+
+    private boolean matchPhrase(int i, String[] phrase, float mins) {
+
+        int last = i + phrase.length - 1;
+
+        if (last >= wordCount) {
+            return false;
+        }
+
+        for (int w = 0; w < phrase.length - 1; w++) {
+            if (!wordEquals(i + w, phrase[w], false)) {
+                return false;
+            }
+        }
+
+        String lastPart = phrase[phrase.length - 1];
+
+        if (!input.startsWith(lastPart, wordStart[last]) || wordStart[last] + lastPart.length() > wordEnd[last]) {
+            return false;
+        }
+
+        phraseWords = phrase.length;
+        phraseTailStart = wordStart[last] + lastPart.length();
+        phraseMins = mins;
+        return true;
+    }
+
+    //Number of words taken up by the token starting at the given word
+    private int width(int i, boolean forIsPer) {
+        return matchDuration(i, forIsPer) ? phraseWords : 1;
+    }
+
+    private boolean isAmount(int i) {
+        return input.charAt(wordStart[i]) == '$' || isFree(i);
+    }
+
+    //"$1.20" or "Free" (Free is taken as $0)
+    private float amountAt(int i) {
+
+        if (isFree(i)) {
+            return 0f;
+        }
+
+        return parseNumber(wordStart[i] + 1, wordEnd[i]);
+    }
+
+    private boolean isFree(int i) {
+        return wordEquals(i, "Free", false) && wordEnd[i] < length && input.charAt(wordEnd[i]) == ' ';
+    }
+
+    private boolean isPer(int i, boolean forIsPer) {
+        return wordEquals(i, "per", false) || (forIsPer && (wordEquals(i, "for", false) || wordEquals(i, "/", false)));
+    }
+
+    //All the digits in a word, e.g. "15mins." is 15
+    private float digitsOf(int i) {
+
+        long mantissa = 0;
+        int scale = -1;
+        int digits = 0;
+
+        for (int c = wordStart[i]; c < wordEnd[i]; c++) {
+
+            char ch = input.charAt(c);
+
+            if (ch >= '0' && ch <= '9') {
+                mantissa = mantissa * 10 + (ch - '0');
+                digits++;
+                if (scale >= 0) scale++;
+            }
+
+            else if (ch == '.') {
+                if (scale >= 0) return Float.NaN;
+                scale = 0;
+            }
+        }
+
+        return toFloat(mantissa, digits, Math.max(scale, 0));
+    }
+
+    //Minutes in the form of "30mins" or "30 mins", where everything other than the number and "mins" is dropped
+    private float parseMinutes(int from, int to) {
+
+        int numberEnd = indexOf("mins", from, to, false);
+        int tail = numberEnd + 4;
+
+        if (skipWhitespace(tail, to) != to) {
+            return Float.NaN;
+        }
+
+        return parseNumber(skipWhitespace(from, numberEnd), numberEnd);
+    }
+
+    //Parse a plain decimal number e.g. "1.20" without creating a String
+    private float parseNumber(int from, int to) {
+
+        long mantissa = 0;
+        int scale = -1;
+        int digits = 0;
+
+        for (int c = from; c < to; c++) {
+
+            char ch = input.charAt(c);
+
+            if (ch >= '0' && ch <= '9') {
+                mantissa = mantissa * 10 + (ch - '0');
+                digits++;
+                if (scale >= 0) scale++;
+            }
+
+            else if (ch == '.' && scale < 0) {
+                scale = 0;
+            }
+
+            else {
+                return Float.NaN;
+            }
+        }
+
+        return toFloat(mantissa, digits, Math.max(scale, 0));
+    }
+
+    private float toFloat(long mantissa, int digits, int scale) {
+
+        if (digits == 0 || digits > 18) {
+            return Float.NaN;
+        }
+
+        return (float) (mantissa / POWERS_OF_TEN[scale]);
+    }
+
+    //Split the input into words on whitespace, ":" and "/". "sub." and "/" between two numbers (1/2) are kept as they are
+    private void scanWords() {
+
+        wordCount = 0;
+        int start = -1;
+
+        for (int i = 0; i < length; i++) {
+
+            char ch = input.charAt(i);
+
+            if (isWhitespace(ch) || ch == ':') {
+                if (start >= 0) addWord(start, i);
+                start = -1;
+            }
+
+            else if (ch == '/' && !(i > 0 && isDigit(input.charAt(i - 1)) && i + 1 < length && isDigit(input.charAt(i + 1)))) {
+                if (start >= 0) addWord(start, i);
+                addWord(i, i + 1);
+                start = -1;
+            }
+
+            else if (start < 0) {
+                start = i;
+            }
+
+            else if (ch != '.' && i - start == 4 && input.startsWith("sub.", start)) {
+                addWord(start, i);
+                start = i;
+            }
+        }
+
+        if (start >= 0) {
+            addWord(start, length);
+        }
+    }
+
+    private void addWord(int start, int end) {
+
+        if (wordCount == wordStart.length) {
+            wordStart = Arrays.copyOf(wordStart, wordCount * 2);
+            wordEnd = Arrays.copyOf(wordEnd, wordCount * 2);
+        }
+
+        wordStart[wordCount] = start;
+        wordEnd[wordCount] = end;
+        wordCount++;
+    }
+
+    //Index of the first word starting at or after the given position
+    private int firstWord(int from) {
+
+        int i = 0;
+        while (i < wordCount && wordStart[i] < from) {
+            i++;
+        }
+
+        return i;
+    }
+
+    //Index after the last word ending at or before the given position
+    private int endWord(int to) {
+
+        int i = wordCount;
+        while (i > 0 && wordEnd[i - 1] > to) {
+            i--;
+        }
+
+        return i;
+    }
+
+    private boolean setRate(ChargeType rateType, int present, float start, float end, float base, float baseUnit, float subsequent, float subsequentUnit) {
+        type = rateType;
+        presentValues = present;
+        startTime = start;
+        endTime = end;
+        baseRate = base;
+        baseRateTimeUnitInMins = baseUnit;
+        subsequentRate = subsequent;
+        subsequentRateTimeUnitInMins = subsequentUnit;
+        return true;
+    }
+
+    private boolean wordEquals(int i, String s, boolean ignoreCase) {
+        return wordEnd[i] - wordStart[i] == s.length() && input.regionMatches(ignoreCase, wordStart[i], s, 0, s.length());
+    }
+
+    private boolean wordStartsWith(int i, String s) {
+        return wordEnd[i] - wordStart[i] >= s.length() && input.startsWith(s, wordStart[i]);
+    }
+
+    private boolean wordEndsWith(int i, String s) {
+        return wordEnd[i] - wordStart[i] >= s.length() && input.startsWith(s, wordEnd[i] - s.length());
+    }
+
+    private boolean wordEndsWithIgnoreCase(int i, String s) {
+        return wordEnd[i] - wordStart[i] >= s.length() && input.regionMatches(true, wordEnd[i] - s.length(), s, 0, s.length());
+    }
+
+    //Drop the ";" and a trailing "," after a time unit e.g. "hr;" or "2hrs,"
+    private int trimUnitPunctuation(int from, int to) {
+
+        while (to > from && input.charAt(to - 1) == ';') {
+            to--;
+        }
+
+        if (to > from && input.charAt(to - 1) == ',') {
+            to--;
+        }
+
+        while (to > from && input.charAt(to - 1) == ';') {
+            to--;
+        }
+
+        return to;
+    }
+
+    private int indexOf(String s, int from, int to, boolean ignoreCase) {
+
+        for (int i = from; i + s.length() <= to; i++) {
+            if (input.regionMatches(ignoreCase, i, s, 0, s.length())) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    private int count(char ch, int from, int to) {
+
+        int matches = 0;
+
+        for (int i = from; i < to; i++) {
+            if (input.charAt(i) == ch) matches++;
+        }
+
+        return matches;
+    }
+
+    private boolean hasContentAfter(int colon) {
+        return hasContentOtherThan(colon + 1, length, ':');
+    }
+
+    private boolean hasContentOtherThan(int from, int to, char ch) {
+
+        for (int i = from; i < to; i++) {
+            if (input.charAt(i) != ch) return true;
+        }
+
+        return false;
+    }
+
+    private int skipNumber(int from, int to) {
+
+        while (from < to && (isDigit(input.charAt(from)) || input.charAt(from) == '.')) {
+            from++;
+        }
+
+        return from;
+    }
+
+    private int skipWhitespace(int from, int to) {
+
+        while (from < to && isWhitespace(input.charAt(from))) {
+            from++;
+        }
+
+        return from;
+    }
+
+    //Same characters as String.trim()
+    private int skipTrimmable(int from, int to) {
+
+        while (from < to && input.charAt(from) <= ' ') {
+            from++;
+        }
+
+        return from;
+    }
+
+    private static boolean isWhitespace(char ch) {
+        return ch <= ' ' || ch == NBSP;
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
@@ -0,0 +1,93 @@
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.http.HTTPRepository;
+import org.eclipse.rdf4j.repository.sail.SailRepository;
+import org.eclipse.rdf4j.sail.memory.MemoryStore;
+import org.eclipse.rdf4j.sail.nativerdf.NativeStore;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+//Repository KBController and DataRetrieval work on, as chosen by graphdb.backend: the graphDB server at graphdb.url (http), an in-process
+//MemoryStore (memory), or an in-process NativeStore on disk with the triple indexes in graphdb.nativeindexes (native).
+//An embedded store can only be opened once per data directory, so each backend is opened once and shared by every caller in the application,
+//e.g. the KBController and DataRetrieval run one after the other by ApplicationDemo. The application shuts them down (shutDownAll) once
+//KBController and DataRetrieval have closed their connections
+public class RepositoryBackend {
+
+    private static final Map<String, Repository> openRepositories = new HashMap<>();
+
+    //Repository of the backend in the given properties, opened on the first call
+    public static synchronized Repository getRepository(Properties prop) {
+
+        String description = describe(prop);
+        Repository repository = openRepositories.get(description);
+
+        if (repository == null) {
+            repository = createRepository(prop);
+            repository.init();
+            openRepositories.put(description, repository);
+        }
+
+        return repository;
+    }
+
+    private static Repository createRepository(Properties prop) {
+
+        String backend = prop.getProperty("graphdb.backend", "http").trim().toLowerCase();
+        String dataDirectory = prop.getProperty("graphdb.datadir", "").trim();
+
+        switch (backend) {
+
+            case "http":
+                return new HTTPRepository(prop.get("graphdb.url").toString());
+
+            case "memory":
+                //Only kept on disk when a data directory is given
+                return new SailRepository(dataDirectory.isEmpty() ? new MemoryStore() : new MemoryStore(new File(dataDirectory)));
+
+            case "native":
+                if (dataDirectory.isEmpty()) {
+                    throw new IllegalArgumentException("graphdb.datadir must be set to use the native backend");
+                }
+                return new SailRepository(new NativeStore(new File(dataDirectory), prop.getProperty("graphdb.nativeindexes", "spoc,posc").replace(" ", "")));
+
+            default:
+                throw new IllegalArgumentException("Unknown graphdb.backend " + backend + ", expected http, memory or native");
+        }
+    }
+
+    //Where the backend in the given properties keeps its data, for messages
+    public static String describe(Properties prop) {
+
+        String backend = prop.getProperty("graphdb.backend", "http").trim().toLowerCase();
+        String dataDirectory = prop.getProperty("graphdb.datadir", "").trim();
+
+        switch (backend) {
+
+            case "http":
+                return prop.get("graphdb.url").toString();
+
+            case "memory":
+                return dataDirectory.isEmpty() ? "memory store (not persisted)" : "memory store in " + dataDirectory;
+
+            case "native":
+                return "native store in " + dataDirectory + " (indexes " + prop.getProperty("graphdb.nativeindexes", "spoc,posc").replace(" ", "") + ")";
+
+            default:
+                return backend;
+        }
+    }
+
+    //Shut down every opened repository, which writes what the embedded stores still hold in memory to disk. Only called once no connection
+    //to them is still in use
+    public static synchronized void shutDownAll() {
+
+        for (Repository repository : openRepositories.values()) {
+            repository.shutDown();
+        }
+
+        openRepositories.clear();
+    }
+}
@@ -0,0 +1,98 @@
+import org.eclipse.rdf4j.model.Model;
+import org.eclipse.rdf4j.model.Resource;
+import org.eclipse.rdf4j.repository.Repository;
+import org.eclipse.rdf4j.repository.RepositoryConnection;
+import org.eclipse.rdf4j.repository.RepositoryException;
+import org.eclipse.rdf4j.repository.http.HTTPRepository;
+import org.eclipse.rdf4j.rio.RDFFormat;
+import org.eclipse.rdf4j.rio.Rio;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+//Format the batches of KBController are sent to graphDB in, as chosen by graphdb.uploadformat: binary (RDF4J binary RDF), ntriples, turtle or trig.
+//Each batch is serialized once and sent as a single upload, instead of being handed to the connection statement by statement.
+//With model, or with an embedded backend where there is nothing to send, the batch is added to the connection as it is.
+//Shared by the stripes of a striped load, so the counters are thread safe
+public class UploadFormat {
+
+    private static final String BASE_URI = "http://cdit#";
+
+    private final RDFFormat format;
+
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder batchesSent = new LongAdder();
+
+    public UploadFormat(Properties prop, Repository repository) {
+
+        RDFFormat chosenFormat = parseFormat(prop.getProperty("graphdb.uploadformat", "binary").trim().toLowerCase());
+
+        //Embedded stores take the statements as they are, so serializing them would only add work
+        format = (repository instanceof HTTPRepository) ? chosenFormat : null;
+    }
+
+    //RDF format of the given name, or null for model
+    public static RDFFormat parseFormat(String formatName) {
+
+        switch (formatName) {
+
+            case "model":
+                return null;
+
+            case "binary":
+                return RDFFormat.BINARY;
+
+            case "ntriples":
+                return RDFFormat.NTRIPLES;
+
+            case "turtle":
+                return RDFFormat.TURTLE;
+
+            case "trig":
+                return RDFFormat.TRIG;
+
+            default:
+                throw new IllegalArgumentException("Unknown graphdb.uploadformat " + formatName + ", expected binary, ntriples, turtle, trig or model");
+        }
+    }
+
+    //Add the batch to the database through the given connection, into the given contexts or into the contexts of its statements when there are none
+    public void add(RepositoryConnection connection, Model model, Resource... contexts) {
+
+        if (format == null) {
+            connection.add(model, contexts);
+            return;
+        }
+
+        ByteArrayOutputStream serializedModel = new ByteArrayOutputStream(model.size() * 64);
+        Rio.write(model, serializedModel, format);
+
+        try {
+            connection.add(new ByteArrayInputStream(serializedModel.toByteArray()), BASE_URI, format, contexts);
+        }
+
+        catch (IOException e) {
+            throw new RepositoryException("Could not upload a batch of " + model.size() + " statements", e);
+        }
+
+        bytesSent.add(serializedModel.size());
+        batchesSent.increment();
+    }
+
+    //Bytes sent so far, or null when the batches are added as they are
+    public String getReport() {
+
+        if (format == null) {
+            return null;
+        }
+
+        long batches = batchesSent.sum();
+        long bytes = bytesSent.sum();
+
+        return "Uploads: " + batches + " batches in " + format.getName() + ", " + bytes + " bytes"
+                + ((batches > 0) ? " (" + (bytes / batches) + " bytes per batch)." : ".");
+    }
+}
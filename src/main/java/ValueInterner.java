@@ -0,0 +1,100 @@
+import org.eclipse.rdf4j.model.IRI;
+import org.eclipse.rdf4j.model.Literal;
+import org.eclipse.rdf4j.model.ValueFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+//Bounded cache of the IRIs and literals created by KBController, so that the same carpark, category, name or rate is created once and
+//shared by every statement which uses it. Each kind of value keeps up to maximumSize entries, and drops its least recently used entry when full.
+//A maximumSize of 0 creates every value anew. Not thread safe: it is only used by the thread building the batches
+public class ValueInterner {
+
+    private final ValueFactory vf;
+    private final String namespace;
+    private final int maximumSize;
+
+    private final Map<String, IRI> nameIRIs;
+    private final Map<String, Literal> stringLiterals;
+    private final Map<Float, Literal> floatLiterals;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public ValueInterner(ValueFactory vf, String namespace, int maximumSize) {
+        this.vf = vf;
+        this.namespace = namespace;
+        this.maximumSize = maximumSize;
+        this.nameIRIs = new LeastRecentlyUsedMap<>(maximumSize);
+        this.stringLiterals = new LeastRecentlyUsedMap<>(maximumSize);
+        this.floatLiterals = new LeastRecentlyUsedMap<>(maximumSize);
+    }
+
+    //IRI in the namespace for the given name, with its spaces removed
+    public IRI createNameIRI(String name) {
+        return intern(nameIRIs, name, key -> vf.createIRI(namespace, key.replaceAll(" ", "")));
+    }
+
+    public Literal createLiteral(String label) {
+        return intern(stringLiterals, label, vf::createLiteral);
+    }
+
+    public Literal createLiteral(float value) {
+        return intern(floatLiterals, value, vf::createLiteral);
+    }
+
+    private <K, V> V intern(Map<K, V> values, K key, Function<K, V> factory) {
+
+        if (maximumSize == 0) {
+            return factory.apply(key);
+        }
+
+        V value = values.get(key);
+
+        if (value != null) {
+            hits++;
+            return value;
+        }
+
+        misses++;
+        value = factory.apply(key);
+        values.put(key, value);
+
+        return value;
+    }
+
+    public long getHitCount() {
+        return hits;
+    }
+
+    public long getMissCount() {
+        return misses;
+    }
+
+    //Share of the values which were taken from the cache instead of being created
+    public double getHitRatio() {
+
+        long lookups = hits + misses;
+
+        return lookups == 0 ? 0d : (double) hits / lookups;
+    }
+
+    //Access ordered map which removes its eldest entry once it grows past its capacity
+    private static class LeastRecentlyUsedMap<K, V> extends LinkedHashMap<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        LeastRecentlyUsedMap(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}